@@ -0,0 +1,110 @@
+package com.example.inventory.benchmark;
+
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.messaging.ImportChunkMessageConverter;
+import com.example.inventory.messaging.MessageCompression;
+import com.example.inventory.messaging.dto.ImportChunkEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a 1000-row import chunk the way it travels between producer and
+ * consumer: the message converter plus the compression post-processors configured for RabbitMQ.
+ * The JSON converter is the format chunks used before the binary one, kept as a baseline.
+ * One operation is one chunk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChunkCodecBenchmark {
+
+    private static final int CHUNK_ROWS = 1000;
+    private static final int COMPRESSION_THRESHOLD_BYTES = 1024;
+
+    @Param({"binary", "json"})
+    private String converter;
+
+    @Param({MessageCompression.LZ4, MessageCompression.NONE})
+    private String compression;
+
+    private MessageConverter messageConverter;
+    private MessagePostProcessor compressor;
+    private MessagePostProcessor decompressor;
+    private ImportChunkEvent chunk;
+
+    private byte[] encodedBody;
+    private String encodedContentType;
+    private String encodedContentEncoding;
+    private Map<String, Object> encodedHeaders;
+
+    @Setup
+    public void setUp() {
+        messageConverter = switch (converter) {
+            case "binary" -> new ImportChunkMessageConverter();
+            case "json" -> jsonConverter();
+            default -> throw new IllegalArgumentException("Unknown converter: " + converter);
+        };
+        compressor = MessageCompression.compressor(compression, COMPRESSION_THRESHOLD_BYTES);
+        decompressor = MessageCompression.decompressor();
+        chunk = ImportChunkEvent.builder()
+                .jobId("3f1c6a52-6c1e-4d4b-9a2e-8d1f7b0c2e91")
+                .chunkNumber(17)
+                .mode(ImportJob.ImportMode.APPEND)
+                .attempt(1)
+                .publishedAt(System.currentTimeMillis())
+                .startOffset(0)
+                .endOffset(CHUNK_ROWS * 160L)
+                .products(SyntheticCatalog.generate(CHUNK_ROWS, 42).products())
+                .build();
+
+        Message encoded = encode();
+        encodedBody = encoded.getBody();
+        encodedContentType = encoded.getMessageProperties().getContentType();
+        encodedContentEncoding = encoded.getMessageProperties().getContentEncoding();
+        encodedHeaders = Map.copyOf(encoded.getMessageProperties().getHeaders());
+    }
+
+    @Benchmark
+    public Message encode() {
+        return compressor.postProcessMessage(messageConverter.toMessage(chunk, new MessageProperties()));
+    }
+
+    @Benchmark
+    public Object decode() {
+        // Decompression rewrites the message's properties, so every operation starts from a fresh message
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(encodedContentType);
+        properties.setContentEncoding(encodedContentEncoding);
+        properties.getHeaders().putAll(encodedHeaders);
+        return messageConverter.fromMessage(decompressor.postProcessMessage(new Message(encodedBody, properties)));
+    }
+
+    private static MessageConverter jsonConverter() {
+        DefaultJackson2JavaTypeMapper typeMapper = new DefaultJackson2JavaTypeMapper();
+        typeMapper.setTrustedPackages(ImportChunkEvent.class.getPackageName());
+        Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+        json.setJavaTypeMapper(typeMapper);
+        return json;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.inventory.benchmark;
+
+import com.example.inventory.service.source.ImportSource;
+import com.example.inventory.service.source.ProductRecordParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer-side parsing of source records into {@code ProductDTO}s, as the import producer runs
+ * it. One operation is one row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductParseBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"CSV", "NDJSON"})
+    private ImportSource.Format format;
+
+    private byte[] source;
+
+    @Setup
+    public void setUp() {
+        SyntheticCatalog catalog = SyntheticCatalog.generate(ROWS, 42);
+        source = format == ImportSource.Format.CSV ? catalog.csv() : catalog.ndjson();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parse(Blackhole blackhole) throws IOException {
+        try (ProductRecordParser parser = ImportSource.parser(format, new ByteArrayInputStream(source), 0, null)) {
+            while (parser.next()) {
+                blackhole.consume(parser.product());
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.inventory.benchmark;
+
+import com.example.inventory.messaging.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic product catalog shaped like real imports: unique ids and EANs, low-cardinality
+ * brands, categories and colors, and descriptions that sometimes need CSV quoting. The same seed
+ * always yields the same bytes, so runs stay comparable without any input file.
+ */
+public final class SyntheticCatalog {
+
+    public static final String CSV_HEADER =
+            "Internal ID,Name,Description,Brand,Category,Price,Currency,Stock,EAN,Color,Size,Availability";
+
+    private static final String[] ADJECTIVES = {"Compact", "Wireless", "Premium", "Classic", "Portable", "Smart",
+            "Ergonomic", "Heavy-Duty", "Slim", "Outdoor"};
+    private static final String[] NOUNS = {"Laptop", "Mouse", "Keyboard", "Monitor", "Headphones", "Backpack",
+            "Desk Lamp", "Water Bottle", "Jacket", "Sneakers", "Blender", "Camera"};
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP"};
+    private static final String[] COLORS = {"Black", "White", "Silver", "Red", "Blue", "Green", "Grey", "Navy",
+            "Beige", "Pink", "Orange", "Yellow"};
+    private static final String[] SIZES = {"XS", "S", "M", "L", "XL", "Standard", "15-inch", "One Size"};
+    private static final String[] AVAILABILITY = {"In Stock", "Out of Stock", "Preorder"};
+
+    private final List<ProductDTO> products;
+    private final byte[] csv;
+    private final byte[] ndjson;
+
+    private SyntheticCatalog(List<ProductDTO> products, byte[] csv, byte[] ndjson) {
+        this.products = products;
+        this.csv = csv;
+        this.ndjson = ndjson;
+    }
+
+    public static SyntheticCatalog generate(int rows, long seed) {
+        Random random = new Random(seed);
+        List<ProductDTO> products = new ArrayList<>(rows);
+        StringBuilder csv = new StringBuilder(rows * 160).append(CSV_HEADER).append('\n');
+        long offset = csv.length();
+        for (int i = 0; i < rows; i++) {
+            ProductDTO product = product(random, i);
+            String line = csvLine(product);
+            // Row numbers and offsets as the producer assigns them, for chunk payloads
+            product.setRowNumber(i + 1L);
+            product.setSourceOffset(offset);
+            products.add(product);
+            csv.append(line);
+            offset += line.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return new SyntheticCatalog(Collections.unmodifiableList(products),
+                csv.toString().getBytes(StandardCharsets.UTF_8), ndjson(products));
+    }
+
+    public List<ProductDTO> products() {
+        return products;
+    }
+
+    /**
+     * @return the catalog as CSV with a header line
+     */
+    public byte[] csv() {
+        return csv;
+    }
+
+    /**
+     * @return the catalog as one JSON object per line
+     */
+    public byte[] ndjson() {
+        return ndjson;
+    }
+
+    private static ProductDTO product(Random random, int i) {
+        String noun = NOUNS[random.nextInt(NOUNS.length)];
+        int descriptionKind = random.nextInt(10);
+        String description = switch (descriptionKind) {
+            case 0 -> null;
+            case 1, 2 -> "Durable " + noun.toLowerCase() + ", tested for \"everyday\" use";
+            default -> "High quality " + noun.toLowerCase() + " for home and office";
+        };
+        return ProductDTO.builder()
+                .internalId(String.format("PROD-%07d", i))
+                .name(ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + noun + " " + (i % 1000))
+                .description(description)
+                .brand("Brand " + random.nextInt(200))
+                .category("Category " + random.nextInt(50))
+                .price(BigDecimal.valueOf(99 + random.nextInt(199_900), 2))
+                .currency(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                .stock(random.nextInt(1000))
+                .ean(String.valueOf(4_000_000_000_000L + i))
+                .color(random.nextInt(5) == 0 ? null : COLORS[random.nextInt(COLORS.length)])
+                .size(SIZES[random.nextInt(SIZES.length)])
+                .availability(AVAILABILITY[random.nextInt(AVAILABILITY.length)])
+                .build();
+    }
+
+    private static String csvLine(ProductDTO product) {
+        return String.join(",", product.getInternalId(), quote(product.getName()), quote(product.getDescription()),
+                product.getBrand(), product.getCategory(), product.getPrice().toPlainString(), product.getCurrency(),
+                String.valueOf(product.getStock()), product.getEan(), quote(product.getColor()), product.getSize(),
+                product.getAvailability()) + "\n";
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static byte[] ndjson(List<ProductDTO> products) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(products.size() * 280);
+        try (JsonGenerator json = new JsonFactory().createGenerator(out)) {
+            json.setRootValueSeparator(null);
+            for (ProductDTO product : products) {
+                json.writeStartObject();
+                json.writeStringField("internalId", product.getInternalId());
+                json.writeStringField("name", product.getName());
+                json.writeStringField("description", product.getDescription());
+                json.writeStringField("brand", product.getBrand());
+                json.writeStringField("category", product.getCategory());
+                json.writeNumberField("price", product.getPrice());
+                json.writeStringField("currency", product.getCurrency());
+                json.writeNumberField("stock", product.getStock());
+                json.writeStringField("ean", product.getEan());
+                json.writeStringField("color", product.getColor());
+                json.writeStringField("size", product.getSize());
+                json.writeStringField("availability", product.getAvailability());
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.inventory.service;
+
+import com.example.inventory.benchmark.SyntheticCatalog;
+import com.example.inventory.messaging.dto.ProductDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumer-side mapping of decoded rows to {@code Product} entities, content fingerprint
+ * included. Lives in the service package to reach {@link ImportConsumer#mapToEntity}.
+ * One operation is one row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityMappingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private List<ProductDTO> rows;
+
+    @Setup
+    public void setUp() {
+        rows = SyntheticCatalog.generate(ROWS, 42).products();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapToEntity(Blackhole blackhole) {
+        for (ProductDTO row : rows) {
+            blackhole.consume(ImportConsumer.mapToEntity(row));
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.example.inventory.config;
 
+import com.example.inventory.messaging.ImportChunkMessageConverter;
+import com.example.inventory.messaging.MessageCompression;
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessagePostProcessor;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class RabbitMQConfig {
@@ -21,6 +31,9 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.exchanges.inventory}")
     private String inventoryExchange;
 
+    @Value("${rabbitmq.exchanges.product-cache}")
+    private String productCacheExchange;
+
     @Value("${rabbitmq.queues.order-created}")
     private String orderCreatedQueue;
 
@@ -36,6 +49,12 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-keys.inventory-failed}")
     private String inventoryFailedRoutingKey;
 
+    @Value("${rabbitmq.compression.encoding}")
+    private String compressionEncoding;
+
+    @Value("${rabbitmq.compression.threshold-bytes}")
+    private int compressionThresholdBytes;
+
     // Exchanges
     @Bean
     public TopicExchange orderExchange() {
@@ -47,6 +66,11 @@ public class RabbitMQConfig {
         return new TopicExchange(inventoryExchange, true, false);
     }
 
+    @Bean
+    public FanoutExchange productCacheExchange() {
+        return new FanoutExchange(productCacheExchange, true, false);
+    }
+
     // Queues
     @Bean
     public Queue orderCreatedQueue() {
@@ -80,15 +104,58 @@ public class RabbitMQConfig {
                 .with(productImportRoutingKey);
     }
 
+    // One auto-delete queue per instance, so every instance sees every cache invalidation
+    @Bean
+    public Queue productCacheQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding productCacheBinding() {
+        return BindingBuilder
+                .bind(productCacheQueue())
+                .to(productCacheExchange());
+    }
+
     @Bean
+    @Primary
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
 
+    // Product import chunks use a dedicated binary format
+    @Bean
+    public ImportChunkMessageConverter importChunkMessageConverter() {
+        return new ImportChunkMessageConverter();
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory importListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(importChunkMessageConverter());
+        factory.setAfterReceivePostProcessors(MessageCompression.decompressor());
+        return factory;
+    }
+
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(jsonMessageConverter());
         return rabbitTemplate;
     }
+
+    // Applied to import chunks and cache invalidations, the large bodies this service sends to itself;
+    // order-flow events stay plain JSON, so the services consuming them need no decompressor
+    @Bean
+    public MessagePostProcessor messageCompressor() {
+        return MessageCompression.compressor(compressionEncoding, compressionThresholdBytes);
+    }
+
+    // Listeners decompress any content-encoding the publishers may have applied
+    @Bean
+    public ContainerCustomizer<SimpleMessageListenerContainer> decompressingContainerCustomizer() {
+        return container -> container.setAfterReceivePostProcessors(MessageCompression.decompressor());
+    }
 }
@@ -2,10 +2,29 @@ package com.example.inventory.controller;
 
 import com.example.inventory.entity.ImportJob;
 import com.example.inventory.repository.ImportJobRepository;
+import com.example.inventory.service.ImportDryRun;
+import com.example.inventory.service.ImportErrorReport;
+import com.example.inventory.service.ImportJobControl;
 import com.example.inventory.service.ImportProducer;
+import com.example.inventory.service.ImportProgressAggregator;
+import com.example.inventory.service.ImportRecovery;
+import com.example.inventory.service.source.ImportSource;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/inventory")
@@ -14,6 +33,15 @@ public class ImportController {
 
     private final ImportProducer importProducer;
     private final ImportJobRepository importJobRepository;
+    private final ImportProgressAggregator importProgressAggregator;
+    private final ImportRecovery importRecovery;
+    private final ImportErrorReport importErrorReport;
+    private final ImportJobControl importJobControl;
+    private final ImportDryRun importDryRun;
+
+    // Directory the file names of import and dry-run requests are resolved against
+    @Value("${product-import.directory}")
+    private String importDirectory;
 
     @GetMapping("/test")
     public String testApi() {
@@ -23,17 +51,117 @@ public class ImportController {
 
     @PostMapping("/import")
     public ResponseEntity<String> importProducts(
-            @RequestParam(value = "fileName", defaultValue = "products-2000000.csv") String fileName) {
-        // Since we mounted ./:/app/data, the file should be at /app/data/{fileName}
-        String filePath = "/Users/zahid/Projects/AI/shoping/" + fileName;
-        String jobId = importProducer.startImport(filePath);
-        return ResponseEntity.accepted().body("Import started for file: " + filePath + ". Job ID: " + jobId);
+            @RequestParam(value = "fileName", defaultValue = "products-2000000.csv") String fileName,
+            @RequestParam(value = "parallel", defaultValue = "false") boolean parallel,
+            @RequestParam(value = "mode", defaultValue = "APPEND") ImportJob.ImportMode mode,
+            @RequestParam(value = "priority", defaultValue = "NORMAL") ImportJob.ImportPriority priority) {
+        String filePath = importFile(fileName);
+        String jobId;
+        try {
+            jobId = importProducer.startImport(filePath, parallel, mode, priority);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+        return ResponseEntity.accepted().body("Import queued for file: " + filePath + ". Job ID: " + jobId);
+    }
+
+    /**
+     * Validates a file without importing it and reports what an import would reject.
+     */
+    @PostMapping("/import/dry-run")
+    public ResponseEntity<ImportDryRun.Report> dryRun(
+            @RequestParam(value = "fileName", defaultValue = "products-2000000.csv") String fileName)
+            throws IOException, InterruptedException {
+        String filePath = importFile(fileName);
+        try {
+            return ResponseEntity.ok(importDryRun.validate(filePath));
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Imports a CSV or NDJSON file streamed as the request body, optionally gzip- or
+     * zstd-compressed. The format follows the content type unless given explicitly. The body is
+     * parsed and published as it arrives; the response is sent once it has been fully read.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<String> importUpload(HttpServletRequest request,
+            @RequestParam(value = "mode", defaultValue = "APPEND") ImportJob.ImportMode mode,
+            @RequestParam(value = "format", required = false) ImportSource.Format format) throws IOException {
+        if (format == null) {
+            format = request.getContentType() != null && MediaType.APPLICATION_NDJSON
+                    .isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                    ? ImportSource.Format.NDJSON : ImportSource.Format.CSV;
+        }
+        String jobId = importProducer.importStream(request.getInputStream(), format, mode);
+        return ResponseEntity.accepted().body("Import of uploaded file published. Job ID: " + jobId);
+    }
+
+    /**
+     * Unpauses a paused job, or restarts a job whose producer stopped from its checkpoint.
+     */
+    @PostMapping("/import/{jobId}/resume")
+    public ResponseEntity<String> resumeImport(@PathVariable String jobId) {
+        if (importJobControl.unpause(jobId)) {
+            return ResponseEntity.accepted().body("Import unpaused for job: " + jobId);
+        }
+        if (!importRecovery.resume(jobId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Import job " + jobId + " is not resumable: unknown, finished publishing, or still running");
+        }
+        return ResponseEntity.accepted().body("Import resumed for job: " + jobId);
+    }
+
+    @PostMapping("/import/{jobId}/pause")
+    public ResponseEntity<String> pauseImport(@PathVariable String jobId) {
+        if (!importJobControl.pause(jobId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Import job " + jobId + " cannot be paused: unknown, already paused, or finished");
+        }
+        return ResponseEntity.accepted().body("Import paused for job: " + jobId);
+    }
+
+    @PostMapping("/import/{jobId}/cancel")
+    public ResponseEntity<String> cancelImport(@PathVariable String jobId) {
+        if (!importJobControl.cancel(jobId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Import job " + jobId + " cannot be cancelled: unknown or finished");
+        }
+        return ResponseEntity.accepted().body("Import cancelled for job: " + jobId);
+    }
+
+    /**
+     * Streams the job's errors with the failing records read back from the source file.
+     */
+    @GetMapping("/{jobId}/errors")
+    public ResponseEntity<StreamingResponseBody> getImportErrors(@PathVariable String jobId,
+            @RequestParam(value = "format", defaultValue = "CSV") ImportErrorReport.Format format) {
+        return importJobRepository.findById(jobId)
+                .map(job -> ResponseEntity.ok()
+                        .contentType(format == ImportErrorReport.Format.CSV
+                                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename("import-errors-" + jobId + (format == ImportErrorReport.Format.CSV
+                                        ? ".csv" : ".ndjson"))
+                                .build().toString())
+                        .body((StreamingResponseBody) output -> importErrorReport.write(job, format, output)))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{jobId}")
     public ResponseEntity<ImportJob> getImportStatus(@PathVariable String jobId) {
         return importJobRepository.findById(jobId)
+                .map(importProgressAggregator::withPending)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    private String importFile(String fileName) {
+        return Path.of(importDirectory).resolve(fileName).toString();
+    }
 }
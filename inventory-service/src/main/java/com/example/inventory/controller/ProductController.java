@@ -0,0 +1,77 @@
+package com.example.inventory.controller;
+
+import com.example.inventory.entity.Product;
+import com.example.inventory.service.ProductExport;
+import com.example.inventory.service.ProductLookup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventory/products")
+@RequiredArgsConstructor
+public class ProductController {
+
+    private final ProductExport productExport;
+    private final ProductLookup productLookup;
+
+    @GetMapping("/{internalId}")
+    public ResponseEntity<Product> getProduct(@PathVariable String internalId) {
+        return productLookup.findByInternalId(internalId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/by-ean/{ean}")
+    public List<Product> getProductsByEan(@PathVariable String ean) {
+        return productLookup.findByEan(ean);
+    }
+
+    /**
+     * Lists products in id order. Pass the returned {@code nextAfter} as {@code after} to get the
+     * next page; it is null on the last page.
+     */
+    @GetMapping
+    public ProductLookup.Page listProducts(
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "brand", required = false) String brand,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return productLookup.list(category, brand, after, limit);
+    }
+
+    @GetMapping("/cache/stats")
+    public ProductLookup.Stats getCacheStats() {
+        return productLookup.stats();
+    }
+
+    /**
+     * Streams the catalog, optionally only the products of a category or brand, or those
+     * changed since a timestamp for incremental sync.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(value = "format", defaultValue = "CSV") ProductExport.Format format,
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "brand", required = false) String brand,
+            @RequestParam(value = "updatedSince", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince) {
+        return ResponseEntity.ok()
+                .contentType(format == ProductExport.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(format == ProductExport.Format.CSV ? "products.csv" : "products.ndjson")
+                        .build().toString())
+                .body(output -> productExport.write(format, category, brand, updatedSince, output));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ledger entry for one consumed import chunk. Chunks tile the source file, so the unique
+ * (job_id, start_offset) key makes chunk processing idempotent across redeliveries and resumed
+ * attempts, and the per-chunk counts are the source of a job's final totals.
+ */
+@Entity
+@Table(name = "import_chunks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_import_chunk", columnNames = {"job_id", "start_offset"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private String jobId;
+
+    private Integer attempt;
+
+    @Column(name = "chunk_number", nullable = false)
+    private Integer chunkNumber;
+
+    @Column(name = "start_offset", nullable = false)
+    private Long startOffset;
+
+    @Column(name = "end_offset", nullable = false)
+    private Long endOffset;
+
+    @Column(name = "row_count")
+    private Long rowCount;
+
+    @Column(name = "processed_rows")
+    private Long processedRows;
+
+    @Column(name = "failed_rows")
+    private Long failedRows;
+
+    @Column(name = "inserted_rows")
+    private Long insertedRows;
+
+    @Column(name = "updated_rows")
+    private Long updatedRows;
+
+    @Column(name = "unchanged_rows")
+    private Long unchangedRows;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -9,7 +9,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "import_errors")
+@Table(name = "import_errors", indexes = {
+        @Index(name = "idx_import_error_job", columnList = "job_id, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -23,12 +25,22 @@ public class ImportError {
     @Column(name = "job_id", nullable = false)
     private String jobId;
 
+    // 1-based data row number in the source; rows of parallel ranges are numbered when the job completes
     @Column(name = "row_number")
-    private Integer rowNumber;
+    private Long rowNumber;
+
+    // 1-based position of the row within its chunk
+    @Column(name = "chunk_row")
+    private Integer chunkRow;
+
+    // Byte offset of the failing record in the source; the report reads the record back from there
+    @Column(name = "source_offset")
+    private Long sourceOffset;
 
     @Column(name = "error_message", length = 1000)
     private String errorMessage;
 
+    // Copy of the row, only set on errors recorded before source offsets were tracked
     @Column(name = "row_data", length = 2000)
     private String rowData;
 
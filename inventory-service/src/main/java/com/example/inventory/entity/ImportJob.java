@@ -5,13 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "import_jobs")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ImportJob {
@@ -23,6 +25,15 @@ public class ImportJob {
     @Enumerated(EnumType.STRING)
     private ImportStatus status;
 
+    @Enumerated(EnumType.STRING)
+    private ImportMode mode;
+
+    @Enumerated(EnumType.STRING)
+    private ImportPriority priority;
+
+    // A paused job keeps its place but its producer publishes nothing until it is resumed
+    private Boolean paused;
+
     @Column(name = "total_rows")
     private Long totalRows;
 
@@ -32,6 +43,53 @@ public class ImportJob {
     @Column(name = "failed_rows")
     private Long failedRows;
 
+    // Set by the producer's end-of-stream marker; the job completes once this many chunks are in the ledger
+    @Column(name = "expected_chunks")
+    private Integer expectedChunks;
+
+    @Column(name = "inserted_rows")
+    private Long insertedRows;
+
+    @Column(name = "updated_rows")
+    private Long updatedRows;
+
+    @Column(name = "unchanged_rows")
+    private Long unchangedRows;
+
+    // Consumer feedback for adaptive chunk sizing, smoothed across chunks
+    @Column(name = "avg_row_micros")
+    private Double avgRowMicros;
+
+    @Column(name = "error_rate")
+    private Double errorRate;
+
+    @Column(name = "source_path")
+    private String sourcePath;
+
+    @Column(name = "parallel_mode")
+    private Boolean parallel;
+
+    // Producer attempt; bumped on every resume so chunks from an abandoned attempt can be told apart
+    private Integer attempt;
+
+    // Byte offset each attempt started from, indexed by attempt (1-based in SQL)
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "resume_offsets")
+    private Long[] resumeOffsets;
+
+    // Everything before checkpoint_offset is published and confirmed, in checkpoint_chunks chunks
+    @Column(name = "checkpoint_offset")
+    private Long checkpointOffset;
+
+    @Column(name = "checkpoint_chunks")
+    private Integer checkpointChunks;
+
+    @Column(name = "checkpoint_rows")
+    private Long checkpointRows;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
     @Column(name = "start_time")
     private LocalDateTime startTime;
 
@@ -39,6 +97,25 @@ public class ImportJob {
     private LocalDateTime endTime;
 
     public enum ImportStatus {
-        PENDING, PROCESSING, COMPLETED, FAILED
+        PENDING, PROCESSING, COMPLETED, FAILED, CANCELLED
+    }
+
+    /**
+     * Order in which queued jobs get a producer; jobs of the same priority start first come, first served.
+     */
+    public enum ImportPriority {
+        HIGH, NORMAL, LOW
+    }
+
+    public enum ImportMode {
+        /**
+         * Every row is inserted as a new product. A row whose internal ID is already in the catalog
+         * fails and is reported as an error, so rerunning a file fails every row of it.
+         */
+        APPEND,
+        /** Rows are upserted by internal ID; rows whose content is unchanged are skipped. */
+        DELTA,
+        /** Rows are loaded into a staging table that replaces the whole catalog once the job completes. */
+        REPLACE
     }
 }
@@ -12,7 +12,11 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "products", indexes = {
         @Index(name = "idx_product_ean", columnList = "ean"),
-        @Index(name = "idx_product_internal_id", columnList = "internal_id")
+        @Index(name = "idx_product_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_product_category_id", columnList = "category_id, id"),
+        @Index(name = "idx_product_brand_id", columnList = "brand_id, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_internal_id", columnNames = "internal_id")
 })
 @Data
 @Builder
@@ -33,19 +37,41 @@ public class Product {
     @Column(length = 1000)
     private String description;
 
+    // Low-cardinality columns hold ids into product_attributes
+    @Convert(converter = ProductAttributeConverter.Brand.class)
+    @Column(name = "brand_id")
     private String brand;
+
+    @Convert(converter = ProductAttributeConverter.Category.class)
+    @Column(name = "category_id")
     private String category;
 
     @Column(precision = 19, scale = 2)
     private BigDecimal price;
 
+    @Convert(converter = ProductAttributeConverter.Currency.class)
+    @Column(name = "currency_id")
     private String currency;
+
     private Integer stock;
     private String ean;
+
+    @Convert(converter = ProductAttributeConverter.Color.class)
+    @Column(name = "color_id")
     private String color;
+
+    @Convert(converter = ProductAttributeConverter.Size.class)
+    @Column(name = "size_id")
     private String size;
+
+    @Convert(converter = ProductAttributeConverter.Availability.class)
+    @Column(name = "availability_id")
     private String availability;
 
+    // Fingerprint of the imported fields; delta imports skip rows whose hash is unchanged
+    @Column(name = "content_hash")
+    private Long contentHash;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,37 @@
+package com.example.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One distinct value of a low-cardinality product column, such as a brand or a category.
+ * Products reference values by id instead of repeating the text on every row.
+ */
+@Entity
+@Table(name = "product_attributes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_attribute_kind_value", columnNames = {"kind", "value"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductAttribute {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    @Column(nullable = false)
+    private String value;
+
+    public enum Kind {
+        BRAND, CATEGORY, CURRENCY, COLOR, SIZE, AVAILABILITY
+    }
+}
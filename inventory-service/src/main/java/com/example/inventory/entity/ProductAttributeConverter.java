@@ -0,0 +1,69 @@
+package com.example.inventory.entity;
+
+import com.example.inventory.repository.ProductAttributeDictionary;
+import jakarta.persistence.AttributeConverter;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Maps a product's attribute column to the id of its value in {@code product_attributes}, so the
+ * entity keeps exposing plain values. Query parameters are converted too, so filters compare ids.
+ * <p>
+ * Hibernate creates converters while building the entity manager factory, before the dictionary
+ * can exist; it is looked up on first use.
+ */
+public abstract class ProductAttributeConverter implements AttributeConverter<String, Integer> {
+
+    private final ProductAttribute.Kind kind;
+    private final ObjectProvider<ProductAttributeDictionary> dictionary;
+
+    protected ProductAttributeConverter(ProductAttribute.Kind kind, ObjectProvider<ProductAttributeDictionary> dictionary) {
+        this.kind = kind;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String value) {
+        return value == null ? null : dictionary.getObject().resolve(kind, value);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : dictionary.getObject().value(id);
+    }
+
+    public static class Brand extends ProductAttributeConverter {
+        public Brand(ObjectProvider<ProductAttributeDictionary> dictionary) {
+            super(ProductAttribute.Kind.BRAND, dictionary);
+        }
+    }
+
+    public static class Category extends ProductAttributeConverter {
+        public Category(ObjectProvider<ProductAttributeDictionary> dictionary) {
+            super(ProductAttribute.Kind.CATEGORY, dictionary);
+        }
+    }
+
+    public static class Currency extends ProductAttributeConverter {
+        public Currency(ObjectProvider<ProductAttributeDictionary> dictionary) {
+            super(ProductAttribute.Kind.CURRENCY, dictionary);
+        }
+    }
+
+    public static class Color extends ProductAttributeConverter {
+        public Color(ObjectProvider<ProductAttributeDictionary> dictionary) {
+            super(ProductAttribute.Kind.COLOR, dictionary);
+        }
+    }
+
+    public static class Size extends ProductAttributeConverter {
+        public Size(ObjectProvider<ProductAttributeDictionary> dictionary) {
+            super(ProductAttribute.Kind.SIZE, dictionary);
+        }
+    }
+
+    public static class Availability extends ProductAttributeConverter {
+        public Availability(ObjectProvider<ProductAttributeDictionary> dictionary) {
+            super(ProductAttribute.Kind.AVAILABILITY, dictionary);
+        }
+    }
+}
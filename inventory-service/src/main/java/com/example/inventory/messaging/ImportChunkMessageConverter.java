@@ -0,0 +1,520 @@
+package com.example.inventory.messaging;
+
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.messaging.dto.ImportChunkEvent;
+import com.example.inventory.messaging.dto.ProductDTO;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Columnar binary wire format for {@link ImportChunkEvent}s on the product-import queue.
+ * <p>
+ * Layout: magic, version, job id, chunk number, import mode, attempt, publish time, flags, source byte range, row count,
+ * then one column block per field.
+ * An end-of-stream marker sets a flag and carries the expected chunk count and total rows instead of rows.
+ * Each block carries its field name once and a type tag, followed by the values of every row:
+ * length-prefixed UTF-8 strings, dictionary-encoded strings for low-cardinality columns,
+ * and decimals as longs at a shared column scale. Integers are zig-zag varints; row numbers and
+ * source offsets are stored as zig-zag deltas from the previous row.
+ * Chunks are encoded into a reusable per-thread buffer, so the only allocation per message
+ * is the final body array.
+ * <p>
+ * Only the current version is read; chunks in any other format or content type are rejected,
+ * so the queue must be drained before producers or consumers are upgraded.
+ */
+public class ImportChunkMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-import-chunk";
+
+    private static final byte[] MAGIC = {'I', 'C'};
+    private static final byte VERSION = 6;
+
+    private static final byte FLAG_END_OF_STREAM = 1;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_DICTIONARY = 2;
+    private static final byte TYPE_SCALED_LONG = 3;
+    private static final byte TYPE_INT = 4;
+    private static final byte TYPE_DECIMAL_STRING = 5;
+    private static final byte TYPE_DELTA_LONG = 6;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<ByteSink> BUFFERS = ThreadLocal.withInitial(() -> new ByteSink(INITIAL_BUFFER_SIZE));
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        if (!(object instanceof ImportChunkEvent event)) {
+            throw new MessageConversionException("Unsupported payload type: " + object.getClass().getName());
+        }
+
+        ByteSink sink = BUFFERS.get();
+        sink.reset();
+        encode(event, sink);
+        byte[] body = sink.toByteArray();
+        if (sink.capacity() > MAX_POOLED_BUFFER_SIZE) {
+            BUFFERS.remove();
+        }
+
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        String contentType = message.getMessageProperties().getContentType();
+        if (!CONTENT_TYPE.equals(contentType)) {
+            throw new MessageConversionException("Unsupported import chunk content type: " + contentType);
+        }
+        return decode(new ByteSource(message.getBody()));
+    }
+
+    private void encode(ImportChunkEvent event, ByteSink out) {
+        List<ProductDTO> rows = event.getProducts() == null ? List.of() : event.getProducts();
+
+        out.writeBytes(MAGIC);
+        out.writeByte(VERSION);
+        out.writeString(event.getJobId());
+        out.writeVarLong(event.getChunkNumber());
+        out.writeNullableString(event.getMode() == null ? null : event.getMode().name());
+        out.writeVarLong(event.getAttempt());
+        out.writeVarLong(event.getPublishedAt());
+        if (event.isEndOfStream()) {
+            out.writeByte(FLAG_END_OF_STREAM);
+            out.writeVarLong(event.getExpectedChunks());
+            out.writeVarLong(event.getTotalRows());
+            return;
+        }
+        out.writeByte(0);
+        out.writeVarLong(event.getStartOffset());
+        out.writeVarLong(event.getEndOffset());
+        out.writeVarLong(rows.size());
+
+        out.writeVarLong(15);
+        writeDeltaLongColumn(out, "rowNumber", rows, ProductDTO::getRowNumber);
+        writeDeltaLongColumn(out, "sourceOffset", rows, ProductDTO::getSourceOffset);
+        // Mostly null, so the dictionary costs one byte per row
+        writeDictionaryColumn(out, "parseError", rows, ProductDTO::getParseError);
+        writeStringColumn(out, "internalId", rows, ProductDTO::getInternalId);
+        writeStringColumn(out, "name", rows, ProductDTO::getName);
+        writeStringColumn(out, "description", rows, ProductDTO::getDescription);
+        writeDictionaryColumn(out, "brand", rows, ProductDTO::getBrand);
+        writeDictionaryColumn(out, "category", rows, ProductDTO::getCategory);
+        writeDecimalColumn(out, "price", rows, ProductDTO::getPrice);
+        writeDictionaryColumn(out, "currency", rows, ProductDTO::getCurrency);
+        writeIntColumn(out, "stock", rows, ProductDTO::getStock);
+        writeStringColumn(out, "ean", rows, ProductDTO::getEan);
+        writeDictionaryColumn(out, "color", rows, ProductDTO::getColor);
+        writeDictionaryColumn(out, "size", rows, ProductDTO::getSize);
+        writeDictionaryColumn(out, "availability", rows, ProductDTO::getAvailability);
+    }
+
+    private ImportChunkEvent decode(ByteSource in) {
+        if (in.readByte() != MAGIC[0] || in.readByte() != MAGIC[1]) {
+            throw new MessageConversionException("Not an import chunk message");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new MessageConversionException("Unsupported import chunk format version: " + version);
+        }
+
+        String jobId = in.readString();
+        int chunkNumber = (int) in.readVarLong();
+        String mode = in.readNullableString();
+        int attempt = (int) in.readVarLong();
+        long publishedAt = in.readVarLong();
+        byte flags = in.readByte();
+        if ((flags & FLAG_END_OF_STREAM) != 0) {
+            return ImportChunkEvent.builder()
+                    .jobId(jobId)
+                    .chunkNumber(chunkNumber)
+                    .mode(mode == null ? null : ImportJob.ImportMode.valueOf(mode))
+                    .attempt(attempt)
+                    .publishedAt(publishedAt)
+                    .products(List.of())
+                    .endOfStream(true)
+                    .expectedChunks((int) in.readVarLong())
+                    .totalRows(in.readVarLong())
+                    .build();
+        }
+        long startOffset = in.readVarLong();
+        long endOffset = in.readVarLong();
+        int rowCount = (int) in.readVarLong();
+
+        List<ProductDTO> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new ProductDTO());
+        }
+
+        int columnCount = (int) in.readVarLong();
+        for (int c = 0; c < columnCount; c++) {
+            String name = in.readString();
+            byte type = in.readByte();
+            Object[] values = readColumn(in, type, rowCount);
+            BiConsumer<ProductDTO, Object> setter = setterFor(name);
+            if (setter != null) {
+                for (int i = 0; i < rowCount; i++) {
+                    setter.accept(rows.get(i), values[i]);
+                }
+            }
+        }
+
+        return ImportChunkEvent.builder()
+                .jobId(jobId)
+                .chunkNumber(chunkNumber)
+                .mode(mode == null ? null : ImportJob.ImportMode.valueOf(mode))
+                .attempt(attempt)
+                .publishedAt(publishedAt)
+                .startOffset(startOffset)
+                .endOffset(endOffset)
+                .products(rows)
+                .build();
+    }
+
+    private static BiConsumer<ProductDTO, Object> setterFor(String column) {
+        return switch (column) {
+            case "rowNumber" -> (dto, v) -> dto.setRowNumber((Long) v);
+            case "sourceOffset" -> (dto, v) -> dto.setSourceOffset((Long) v);
+            case "parseError" -> (dto, v) -> dto.setParseError((String) v);
+            case "internalId" -> (dto, v) -> dto.setInternalId((String) v);
+            case "name" -> (dto, v) -> dto.setName((String) v);
+            case "description" -> (dto, v) -> dto.setDescription((String) v);
+            case "brand" -> (dto, v) -> dto.setBrand((String) v);
+            case "category" -> (dto, v) -> dto.setCategory((String) v);
+            case "price" -> (dto, v) -> dto.setPrice((BigDecimal) v);
+            case "currency" -> (dto, v) -> dto.setCurrency((String) v);
+            case "stock" -> (dto, v) -> dto.setStock((Integer) v);
+            case "ean" -> (dto, v) -> dto.setEan((String) v);
+            case "color" -> (dto, v) -> dto.setColor((String) v);
+            case "size" -> (dto, v) -> dto.setSize((String) v);
+            case "availability" -> (dto, v) -> dto.setAvailability((String) v);
+            // Unknown columns from a newer producer are skipped
+            default -> null;
+        };
+    }
+
+    // --- Column writers ---
+
+    private static void writeStringColumn(ByteSink out, String name, List<ProductDTO> rows,
+            Function<ProductDTO, String> getter) {
+        out.writeString(name);
+        out.writeByte(TYPE_STRING);
+        for (ProductDTO row : rows) {
+            out.writeNullableString(getter.apply(row));
+        }
+    }
+
+    private static void writeDictionaryColumn(ByteSink out, String name, List<ProductDTO> rows,
+            Function<ProductDTO, String> getter) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] codes = new int[rows.size()];
+        for (int i = 0; i < codes.length; i++) {
+            String value = getter.apply(rows.get(i));
+            if (value == null) {
+                codes[i] = 0;
+                continue;
+            }
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                entries.add(value);
+                code = entries.size();
+                dictionary.put(value, code);
+            }
+            codes[i] = code;
+        }
+
+        out.writeString(name);
+        out.writeByte(TYPE_DICTIONARY);
+        out.writeVarLong(entries.size());
+        for (String entry : entries) {
+            out.writeString(entry);
+        }
+        // 0 encodes null, n encodes entries[n - 1]
+        for (int code : codes) {
+            out.writeVarLong(code);
+        }
+    }
+
+    private static void writeDecimalColumn(ByteSink out, String name, List<ProductDTO> rows,
+            Function<ProductDTO, BigDecimal> getter) {
+        int scale = 0;
+        for (ProductDTO row : rows) {
+            BigDecimal value = getter.apply(row);
+            if (value != null) {
+                scale = Math.max(scale, value.scale());
+            }
+        }
+
+        long[] unscaled = new long[rows.size()];
+        boolean fitsLong = true;
+        for (int i = 0; i < unscaled.length && fitsLong; i++) {
+            BigDecimal value = getter.apply(rows.get(i));
+            if (value != null) {
+                BigInteger scaled = value.setScale(scale).unscaledValue();
+                fitsLong = scaled.bitLength() < 64;
+                unscaled[i] = scaled.longValue();
+            }
+        }
+
+        out.writeString(name);
+        if (!fitsLong) {
+            out.writeByte(TYPE_DECIMAL_STRING);
+            for (ProductDTO row : rows) {
+                BigDecimal value = getter.apply(row);
+                out.writeNullableString(value == null ? null : value.toPlainString());
+            }
+            return;
+        }
+
+        out.writeByte(TYPE_SCALED_LONG);
+        out.writeVarLong(scale);
+        writeNullBitmap(out, rows, getter);
+        for (int i = 0; i < unscaled.length; i++) {
+            if (getter.apply(rows.get(i)) != null) {
+                out.writeZigZag(unscaled[i]);
+            }
+        }
+    }
+
+    private static void writeIntColumn(ByteSink out, String name, List<ProductDTO> rows,
+            Function<ProductDTO, Integer> getter) {
+        out.writeString(name);
+        out.writeByte(TYPE_INT);
+        writeNullBitmap(out, rows, getter);
+        for (ProductDTO row : rows) {
+            Integer value = getter.apply(row);
+            if (value != null) {
+                out.writeZigZag(value);
+            }
+        }
+    }
+
+    private static void writeDeltaLongColumn(ByteSink out, String name, List<ProductDTO> rows,
+            Function<ProductDTO, Long> getter) {
+        out.writeString(name);
+        out.writeByte(TYPE_DELTA_LONG);
+        writeNullBitmap(out, rows, getter);
+        long previous = 0;
+        for (ProductDTO row : rows) {
+            Long value = getter.apply(row);
+            if (value != null) {
+                out.writeZigZag(value - previous);
+                previous = value;
+            }
+        }
+    }
+
+    private static void writeNullBitmap(ByteSink out, List<ProductDTO> rows, Function<ProductDTO, ?> getter) {
+        byte[] bitmap = new byte[(rows.size() + 7) / 8];
+        for (int i = 0; i < rows.size(); i++) {
+            if (getter.apply(rows.get(i)) != null) {
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.writeBytes(bitmap);
+    }
+
+    // --- Column readers ---
+
+    private static Object[] readColumn(ByteSource in, byte type, int rowCount) {
+        Object[] values = new Object[rowCount];
+        switch (type) {
+            case TYPE_STRING, TYPE_DECIMAL_STRING -> {
+                for (int i = 0; i < rowCount; i++) {
+                    String value = in.readNullableString();
+                    values[i] = type == TYPE_STRING || value == null ? value : new BigDecimal(value);
+                }
+            }
+            case TYPE_DICTIONARY -> {
+                String[] entries = new String[(int) in.readVarLong()];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = in.readString();
+                }
+                for (int i = 0; i < rowCount; i++) {
+                    int code = (int) in.readVarLong();
+                    values[i] = code == 0 ? null : entries[code - 1];
+                }
+            }
+            case TYPE_SCALED_LONG -> {
+                int scale = (int) in.readVarLong();
+                byte[] bitmap = in.readBytes((rowCount + 7) / 8);
+                for (int i = 0; i < rowCount; i++) {
+                    if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                        values[i] = BigDecimal.valueOf(in.readZigZag(), scale);
+                    }
+                }
+            }
+            case TYPE_INT -> {
+                byte[] bitmap = in.readBytes((rowCount + 7) / 8);
+                for (int i = 0; i < rowCount; i++) {
+                    if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                        values[i] = (int) in.readZigZag();
+                    }
+                }
+            }
+            case TYPE_DELTA_LONG -> {
+                byte[] bitmap = in.readBytes((rowCount + 7) / 8);
+                long previous = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                        previous += in.readZigZag();
+                        values[i] = previous;
+                    }
+                }
+            }
+            default -> throw new MessageConversionException("Unknown column type: " + type);
+        }
+        return values;
+    }
+
+    /**
+     * Growable output buffer; instances are pooled per thread and reused across messages.
+     */
+    private static final class ByteSink {
+
+        private byte[] buffer;
+        private int position;
+
+        ByteSink(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void reset() {
+            position = 0;
+        }
+
+        int capacity() {
+            return buffer.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+        }
+
+        // Length + 1, so that 0 can encode null
+        void writeNullableString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class ByteSource {
+
+        private final byte[] buffer;
+        private int position;
+
+        ByteSource(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            if (position >= buffer.length) {
+                throw new MessageConversionException("Truncated import chunk message");
+            }
+            return buffer[position++];
+        }
+
+        byte[] readBytes(int length) {
+            checkAvailable(length);
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new MessageConversionException("Malformed varint in import chunk message");
+        }
+
+        long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() {
+            return readUtf8((int) readVarLong());
+        }
+
+        String readNullableString() {
+            int length = (int) readVarLong();
+            return length == 0 ? null : readUtf8(length - 1);
+        }
+
+        private String readUtf8(int length) {
+            checkAvailable(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private void checkAvailable(int length) {
+            if (length < 0 || position + length > buffer.length) {
+                throw new MessageConversionException("Truncated import chunk message");
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.inventory.messaging;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.support.postprocessor.AbstractCompressingPostProcessor;
+import org.springframework.amqp.support.postprocessor.AbstractDecompressingPostProcessor;
+import org.springframework.amqp.support.postprocessor.DeflaterPostProcessor;
+import org.springframework.amqp.support.postprocessor.DelegatingDecompressingPostProcessor;
+import org.springframework.amqp.support.postprocessor.GZipPostProcessor;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Transparent payload compression for RabbitMQ messages.
+ * <p>
+ * Publishers compress bodies at or above a size threshold and record the algorithm in the
+ * {@code content-encoding} header; consumers pick the matching decompressor from that header,
+ * so uncompressed and compressed messages can share a queue.
+ */
+@Slf4j
+public final class MessageCompression {
+
+    public static final String LZ4 = "lz4";
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String NONE = "none";
+
+    private MessageCompression() {
+    }
+
+    /**
+     * Returns a post-processor that compresses bodies of at least {@code thresholdBytes}
+     * with the given encoding ({@code lz4}, {@code gzip}, {@code deflate} or {@code none}).
+     */
+    public static MessagePostProcessor compressor(String encoding, int thresholdBytes) {
+        AbstractCompressingPostProcessor delegate = switch (encoding) {
+            case LZ4 -> new Lz4CompressingPostProcessor();
+            case GZIP -> new GZipPostProcessor();
+            case DEFLATE -> new DeflaterPostProcessor();
+            case NONE -> null;
+            default -> throw new IllegalArgumentException("Unsupported message compression: " + encoding);
+        };
+        return delegate == null ? message -> message : new ThresholdCompressingPostProcessor(delegate, thresholdBytes);
+    }
+
+    /**
+     * Returns a post-processor that decompresses any supported {@code content-encoding}
+     * and passes other messages through unchanged.
+     */
+    public static DelegatingDecompressingPostProcessor decompressor() {
+        DelegatingDecompressingPostProcessor decompressor = new DelegatingDecompressingPostProcessor();
+        decompressor.addDecompressor(LZ4, new Lz4DecompressingPostProcessor());
+        return decompressor;
+    }
+
+    private static final class ThresholdCompressingPostProcessor implements MessagePostProcessor, Ordered {
+
+        private final AbstractCompressingPostProcessor delegate;
+        private final int thresholdBytes;
+
+        ThresholdCompressingPostProcessor(AbstractCompressingPostProcessor delegate, int thresholdBytes) {
+            this.delegate = delegate;
+            this.thresholdBytes = thresholdBytes;
+        }
+
+        @Override
+        public Message postProcessMessage(Message message) throws AmqpException {
+            int originalSize = message.getBody().length;
+            if (originalSize < thresholdBytes) {
+                return message;
+            }
+            Message compressed = delegate.postProcessMessage(message);
+            if (log.isDebugEnabled()) {
+                log.debug("Compressed message body from {} to {} bytes ({})",
+                        originalSize, compressed.getBody().length, compressed.getMessageProperties().getContentEncoding());
+            }
+            return compressed;
+        }
+
+        @Override
+        public int getOrder() {
+            return delegate.getOrder();
+        }
+    }
+
+    private static final class Lz4CompressingPostProcessor extends AbstractCompressingPostProcessor {
+
+        @Override
+        protected OutputStream getCompressorStream(OutputStream stream) throws IOException {
+            return new LZ4FrameOutputStream(stream);
+        }
+
+        @Override
+        protected String getEncoding() {
+            return LZ4;
+        }
+    }
+
+    private static final class Lz4DecompressingPostProcessor extends AbstractDecompressingPostProcessor {
+
+        @Override
+        protected InputStream getDecompressorStream(InputStream stream) throws IOException {
+            return new LZ4FrameInputStream(stream);
+        }
+
+        @Override
+        protected String getEncoding() {
+            return LZ4;
+        }
+    }
+}
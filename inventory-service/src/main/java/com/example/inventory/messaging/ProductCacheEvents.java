@@ -0,0 +1,64 @@
+package com.example.inventory.messaging;
+
+import com.example.inventory.messaging.dto.ProductCacheInvalidation;
+import com.example.inventory.service.ProductIndexManager;
+import com.example.inventory.service.ProductLookup;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps the product caches and indexes of all instances in step with imports. Each instance listens on its
+ * own auto-delete queue bound to a fanout exchange. A lost invalidation is only logged: the
+ * cache TTL bounds how long the entry stays stale.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCacheEvents {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessagePostProcessor messageCompressor;
+    private final ProductLookup productLookup;
+    private final ProductIndexManager productIndexManager;
+
+    @Value("${rabbitmq.exchanges.product-cache}")
+    private String productCacheExchange;
+
+    public void publishInvalidation(List<String> internalIds, List<String> eans) {
+        publish(new ProductCacheInvalidation(internalIds, eans, false, null));
+    }
+
+    public void publishImportCompleted(String jobId, boolean catalogReplaced) {
+        publish(new ProductCacheInvalidation(List.of(), List.of(), catalogReplaced, jobId));
+    }
+
+    private void publish(ProductCacheInvalidation invalidation) {
+        try {
+            rabbitTemplate.convertAndSend(productCacheExchange, "", invalidation, messageCompressor);
+        } catch (AmqpException e) {
+            log.warn("Failed to publish product cache invalidation, entries expire with the TTL", e);
+        }
+    }
+
+    @RabbitListener(queues = "#{productCacheQueue.name}")
+    public void handleInvalidation(ProductCacheInvalidation invalidation) {
+        if (invalidation.isAll()) {
+            productIndexManager.markChanged();
+            productLookup.invalidateAll();
+        } else if (invalidation.getInternalIds() != null && !invalidation.getInternalIds().isEmpty()) {
+            productIndexManager.markChanged();
+            productLookup.invalidate(invalidation.getInternalIds(), invalidation.getEans());
+        }
+        if (invalidation.getCompletedJobId() != null) {
+            productIndexManager.requestRebuild();
+        }
+    }
+}
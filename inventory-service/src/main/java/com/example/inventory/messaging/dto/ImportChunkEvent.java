@@ -1,5 +1,6 @@
 package com.example.inventory.messaging.dto;
 
+import com.example.inventory.entity.ImportJob;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,5 +15,18 @@ import java.util.List;
 public class ImportChunkEvent {
     private String jobId;
     private int chunkNumber;
+    private ImportJob.ImportMode mode;
+
+    // Producer attempt and the byte range of the source file this chunk covers
+    private int attempt;
+    // Epoch millis at which the producer published the chunk
+    private long publishedAt;
+    private long startOffset;
+    private long endOffset;
     private List<ProductDTO> products;
+
+    // End-of-stream marker: carries no products, only the totals the job completes against
+    private boolean endOfStream;
+    private Integer expectedChunks;
+    private Long totalRows;
 }
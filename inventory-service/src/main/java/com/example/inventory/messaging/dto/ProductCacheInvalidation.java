@@ -0,0 +1,25 @@
+package com.example.inventory.messaging.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Broadcast to every instance when imported products change, so each evicts them from its cache,
+ * and when an import completes, so each rebuilds its product index.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCacheInvalidation {
+
+    private List<String> internalIds;
+    private List<String> eans;
+
+    // Set when the whole catalog was replaced
+    private boolean all;
+
+    private String completedJobId;
+}
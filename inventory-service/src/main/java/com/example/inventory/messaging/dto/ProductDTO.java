@@ -12,6 +12,12 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductDTO {
+    // 1-based data row number in the source; null for ranges parsed in parallel
+    private Long rowNumber;
+    // Byte offset of the record in the source
+    private Long sourceOffset;
+    // Set instead of the product fields when the producer could not parse the record
+    private String parseError;
     private String internalId;
     private String name;
     private String description;
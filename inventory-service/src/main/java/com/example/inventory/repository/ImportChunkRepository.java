@@ -0,0 +1,51 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.ImportChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface ImportChunkRepository extends JpaRepository<ImportChunk, Long> {
+
+    boolean existsByJobIdAndStartOffset(String jobId, Long startOffset);
+
+    long countByJobId(String jobId);
+
+    List<ImportChunk> findByJobIdOrderByStartOffsetAsc(String jobId);
+
+    /**
+     * Records a chunk as done unless it already is. A chunk from an earlier attempt is only
+     * accepted if it lies before the offset the next attempt resumed from; the shared lock on the
+     * job row keeps a concurrent resume or cancel from slipping in between the check and the insert.
+     *
+     * @return 1 if this call recorded the chunk, 0 if it was recorded before, is stale or its job was cancelled
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO import_chunks (job_id, attempt, chunk_number, start_offset, end_offset, row_count, "
+            + "processed_rows, failed_rows, inserted_rows, updated_rows, unchanged_rows, completed_at) "
+            + "SELECT :jobId, :attempt, :chunkNumber, :startOffset, :endOffset, :rows, "
+            + ":inserted + :updated + :unchanged, :failed, :inserted, :updated, :unchanged, LOCALTIMESTAMP "
+            + "WHERE EXISTS (SELECT 1 FROM import_jobs j WHERE j.id = :jobId AND j.status <> 'CANCELLED' "
+            + "    AND (COALESCE(j.attempt, 1) = :attempt OR :endOffset <= j.resume_offsets[:attempt + 1]) FOR SHARE) "
+            + "ON CONFLICT (job_id, start_offset) DO NOTHING", nativeQuery = true)
+    int claim(@Param("jobId") String jobId, @Param("attempt") int attempt, @Param("chunkNumber") int chunkNumber,
+            @Param("startOffset") long startOffset, @Param("endOffset") long endOffset, @Param("rows") long rows,
+            @Param("failed") long failed, @Param("inserted") long inserted, @Param("updated") long updated,
+            @Param("unchanged") long unchanged);
+
+    /**
+     * Drops ledger entries past the job's checkpoint; a resumed attempt publishes those bytes again.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM import_chunks c USING import_jobs j "
+            + "WHERE c.job_id = :jobId AND j.id = :jobId AND c.end_offset > j.checkpoint_offset", nativeQuery = true)
+    int deleteBeyondCheckpoint(@Param("jobId") String jobId);
+}
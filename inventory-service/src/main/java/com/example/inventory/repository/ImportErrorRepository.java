@@ -1,9 +1,35 @@
 package com.example.inventory.repository;
 
 import com.example.inventory.entity.ImportError;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Repository
 public interface ImportErrorRepository extends JpaRepository<ImportError, Long> {
+
+    // Keyset page of a job's errors in the order they were recorded
+    List<ImportError> findByJobIdAndIdGreaterThanOrderByIdAsc(String jobId, Long afterId, Pageable pageable);
+
+    /**
+     * Numbers the errors recorded without a row number, adding their position within the chunk to
+     * the rows of all chunks before it. Only correct once the ledger holds every chunk of the job.
+     *
+     * @return number of errors numbered
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE import_errors e SET row_number = c.rows_before + e.chunk_row "
+            + "FROM (SELECT start_offset, end_offset, "
+            + "    sum(row_count) OVER (ORDER BY start_offset) - row_count AS rows_before "
+            + "    FROM import_chunks WHERE job_id = :jobId) c "
+            + "WHERE e.job_id = :jobId AND e.row_number IS NULL AND e.chunk_row IS NOT NULL "
+            + "AND e.source_offset >= c.start_offset AND e.source_offset < c.end_offset", nativeQuery = true)
+    int numberRows(@Param("jobId") String jobId);
 }
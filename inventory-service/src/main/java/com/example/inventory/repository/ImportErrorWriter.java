@@ -0,0 +1,61 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.ImportError;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Inserts import errors in one set-based statement per batch, expanding column arrays with
+ * {@code unnest} instead of persisting one entity per error.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportErrorWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO import_errors (job_id, row_number, chunk_row, source_offset, error_message, created_at)
+            SELECT t.*, LOCALTIMESTAMP
+            FROM unnest(?::varchar[], ?::bigint[], ?::int[], ?::bigint[], ?::varchar[])
+                 AS t(job_id, row_number, chunk_row, source_offset, error_message)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(List<ImportError> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                statement.setArray(1, array(connection, "varchar", errors, ImportError::getJobId));
+                statement.setArray(2, array(connection, "int8", errors, ImportError::getRowNumber));
+                statement.setArray(3, array(connection, "int4", errors, ImportError::getChunkRow));
+                statement.setArray(4, array(connection, "int8", errors, ImportError::getSourceOffset));
+                statement.setArray(5, array(connection, "varchar", errors, ImportError::getErrorMessage));
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    private static Array array(Connection connection, String type, List<ImportError> errors,
+            Function<ImportError, Object> column) throws SQLException {
+        Object[] values = switch (type) {
+            case "int8" -> new Long[errors.size()];
+            case "int4" -> new Integer[errors.size()];
+            default -> new String[errors.size()];
+        };
+        for (int i = 0; i < values.length; i++) {
+            values[i] = column.apply(errors.get(i));
+        }
+        return connection.createArrayOf(type, values);
+    }
+}
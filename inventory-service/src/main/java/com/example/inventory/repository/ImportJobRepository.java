@@ -8,6 +8,10 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ImportJobRepository extends JpaRepository<ImportJob, String> {
 
@@ -15,4 +19,172 @@ public interface ImportJobRepository extends JpaRepository<ImportJob, String> {
     @Transactional
     @Query("UPDATE ImportJob j SET j.processedRows = j.processedRows + :processed, j.failedRows = j.failedRows + :failed WHERE j.id = :id")
     void updateProgress(@Param("id") String id, @Param("processed") int processed, @Param("failed") int failed);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.processedRows = j.processedRows + :processed, j.failedRows = j.failedRows + :failed, "
+            + "j.insertedRows = COALESCE(j.insertedRows, 0) + :inserted, "
+            + "j.updatedRows = COALESCE(j.updatedRows, 0) + :updated, "
+            + "j.unchangedRows = COALESCE(j.unchangedRows, 0) + :unchanged, "
+            + "j.avgRowMicros = COALESCE(j.avgRowMicros * 0.8 + :rowMicros * 0.2, :rowMicros), "
+            + "j.errorRate = COALESCE(j.errorRate * 0.8 + :errorRate * 0.2, :errorRate) "
+            + "WHERE j.id = :id AND j.status = com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING")
+    int updateProgress(@Param("id") String id, @Param("processed") long processed, @Param("failed") long failed,
+            @Param("inserted") long inserted, @Param("updated") long updated, @Param("unchanged") long unchanged,
+            @Param("rowMicros") double rowMicros, @Param("errorRate") double errorRate);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.expectedChunks = :expectedChunks, j.totalRows = :totalRows "
+            + "WHERE j.id = :id AND COALESCE(j.attempt, 1) = :attempt")
+    int markEndOfStream(@Param("id") String id, @Param("attempt") int attempt,
+            @Param("expectedChunks") int expectedChunks, @Param("totalRows") long totalRows);
+
+    /**
+     * Records the producer's checkpoint and heartbeat.
+     *
+     * @return 0 if the attempt was superseded by a resume or the job is no longer processing
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.checkpointOffset = :offset, j.checkpointChunks = :chunks, "
+            + "j.checkpointRows = :rows, j.heartbeatAt = :now WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status = com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING")
+    int checkpoint(@Param("id") String id, @Param("attempt") int attempt, @Param("offset") long offset,
+            @Param("chunks") int chunks, @Param("rows") long rows, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.status = com.example.inventory.entity.ImportJob$ImportStatus.FAILED, "
+            + "j.endTime = :now WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status <> com.example.inventory.entity.ImportJob$ImportStatus.CANCELLED")
+    int markFailed(@Param("id") String id, @Param("attempt") int attempt, @Param("now") LocalDateTime now);
+
+    /**
+     * Moves a queued job to PROCESSING when the scheduler gives it a producer.
+     *
+     * @return 0 if the job was cancelled or paused in the meantime
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.status = com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING, "
+            + "j.startTime = :now, j.heartbeatAt = :now WHERE j.id = :id "
+            + "AND j.status = com.example.inventory.entity.ImportJob$ImportStatus.PENDING AND COALESCE(j.paused, false) = false")
+    int markStarted(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /**
+     * Heartbeat for jobs waiting in the scheduler's queue.
+     *
+     * @return 0 if the job was cancelled, failed or superseded
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.heartbeatAt = :now WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status IN (com.example.inventory.entity.ImportJob$ImportStatus.PENDING, "
+            + "com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING)")
+    int touch(@Param("id") String id, @Param("attempt") int attempt, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.paused = :paused WHERE j.id = :id "
+            + "AND j.status IN (com.example.inventory.entity.ImportJob$ImportStatus.PENDING, "
+            + "com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING) "
+            + "AND COALESCE(j.paused, false) <> :paused")
+    int setPaused(@Param("id") String id, @Param("paused") boolean paused);
+
+    @Query("SELECT j.id FROM ImportJob j WHERE j.id IN :ids AND j.paused = true")
+    List<String> findPaused(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.status = com.example.inventory.entity.ImportJob$ImportStatus.CANCELLED, "
+            + "j.endTime = :now WHERE j.id = :id "
+            + "AND j.status IN (com.example.inventory.entity.ImportJob$ImportStatus.PENDING, "
+            + "com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING)")
+    int cancel(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Query("SELECT j.id FROM ImportJob j WHERE j.status = com.example.inventory.entity.ImportJob$ImportStatus.CANCELLED "
+            + "AND j.endTime >= :since")
+    List<String> findCancelledSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Queued jobs whose scheduler stopped sending heartbeats, for example because the pod restarted.
+     */
+    @Query("SELECT j FROM ImportJob j WHERE j.status = com.example.inventory.entity.ImportJob$ImportStatus.PENDING "
+            + "AND j.heartbeatAt < :staleBefore")
+    List<ImportJob> findStalledQueued(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Takes over a queued job whose scheduler is gone. Conditional on the stale heartbeat, so only
+     * one instance wins.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.heartbeatAt = :now WHERE j.id = :id "
+            + "AND j.status = com.example.inventory.entity.ImportJob$ImportStatus.PENDING AND j.heartbeatAt < :staleBefore")
+    int claimQueued(@Param("id") String id, @Param("staleBefore") LocalDateTime staleBefore,
+            @Param("now") LocalDateTime now);
+
+    @Query("SELECT j FROM ImportJob j WHERE j.status = com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING "
+            + "AND j.expectedChunks IS NULL AND j.sourcePath IS NOT NULL "
+            + "AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)")
+    List<ImportJob> findStalled(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Fails streamed imports whose producer died; their input cannot be read again.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.status = com.example.inventory.entity.ImportJob$ImportStatus.FAILED, "
+            + "j.endTime = :now WHERE j.status = com.example.inventory.entity.ImportJob$ImportStatus.PROCESSING "
+            + "AND j.expectedChunks IS NULL AND j.sourcePath IS NULL AND j.heartbeatAt < :staleBefore")
+    int failStalledStreams(@Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+
+    /**
+     * Starts a new producer attempt from the checkpoint, if the job's producer has stopped and has
+     * not finished publishing. Conditional on the attempt seen by the caller, so only one resume wins.
+     *
+     * @return 1 if this call claimed the resume
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE import_jobs SET attempt = attempt + 1, status = 'PROCESSING', end_time = NULL, "
+            + "resume_offsets = array_append(resume_offsets, checkpoint_offset), heartbeat_at = LOCALTIMESTAMP "
+            + "WHERE id = :id AND attempt = :attempt AND expected_chunks IS NULL AND source_path IS NOT NULL "
+            + "AND status IN ('PROCESSING', 'FAILED') AND (heartbeat_at IS NULL OR heartbeat_at < :staleBefore)",
+            nativeQuery = true)
+    int claimResume(@Param("id") String id, @Param("attempt") int attempt,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE import_jobs j SET processed_rows = t.processed, failed_rows = t.failed, "
+            + "inserted_rows = t.inserted, updated_rows = t.updated, unchanged_rows = t.unchanged "
+            + "FROM (SELECT COALESCE(sum(processed_rows), 0) AS processed, COALESCE(sum(failed_rows), 0) AS failed, "
+            + "    COALESCE(sum(inserted_rows), 0) AS inserted, COALESCE(sum(updated_rows), 0) AS updated, "
+            + "    COALESCE(sum(unchanged_rows), 0) AS unchanged FROM import_chunks WHERE job_id = :id) t "
+            + "WHERE j.id = :id", nativeQuery = true)
+    void resetProgressFromLedger(@Param("id") String id);
+
+    /**
+     * Completes the job if every expected chunk is in the ledger, replacing the running counts with
+     * the ledger totals. Concurrent callers are serialized on the job row and the status check
+     * is re-evaluated, so exactly one of them completes the job.
+     *
+     * @return 1 if this call completed the job, otherwise 0
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "WITH job AS (SELECT id, expected_chunks FROM import_jobs "
+            + "    WHERE id = :id AND status = 'PROCESSING' AND expected_chunks IS NOT NULL), "
+            + "totals AS (SELECT count(*) AS chunks, COALESCE(sum(processed_rows), 0) AS processed, "
+            + "    COALESCE(sum(inserted_rows), 0) AS inserted, COALESCE(sum(updated_rows), 0) AS updated, "
+            + "    COALESCE(sum(unchanged_rows), 0) AS unchanged "
+            + "    FROM import_chunks WHERE job_id IN (SELECT id FROM job)) "
+            + "UPDATE import_jobs j SET status = 'COMPLETED', end_time = LOCALTIMESTAMP, "
+            + "processed_rows = t.processed, failed_rows = j.total_rows - t.processed, "
+            + "inserted_rows = t.inserted, updated_rows = t.updated, unchanged_rows = t.unchanged "
+            + "FROM job, totals t "
+            + "WHERE j.id = job.id AND j.status = 'PROCESSING' AND t.chunks >= job.expected_chunks", nativeQuery = true)
+    int completeIfAllChunksDone(@Param("id") String id);
 }
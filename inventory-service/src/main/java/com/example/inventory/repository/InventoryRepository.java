@@ -1,12 +1,26 @@
 package com.example.inventory.repository;
 
 import com.example.inventory.entity.InventoryItem;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<InventoryItem, Long> {
     Optional<InventoryItem> findByProductId(String productId);
+
+    /**
+     * Locks the items until the transaction ends, so a concurrent stock sync cannot be overwritten
+     * by quantities read before it. Rows are locked in product ID order, as the sync locks them.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM InventoryItem i WHERE i.productId IN :productIds ORDER BY i.productId")
+    List<InventoryItem> findAllForUpdate(@Param("productIds") Collection<String> productIds);
 }
@@ -0,0 +1,120 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Projects imported product stock onto {@code inventory_items}, the rows order reservation works
+ * on, in one set-based statement per batch.
+ * <p>
+ * Imported stock is the quantity on hand, units reserved for open orders included. New items
+ * start with all of it available; existing items keep their reservations and make the rest
+ * available. Rows whose name and available quantity already match are not rewritten. Products
+ * without a stock value leave their item untouched.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryStockWriter {
+
+    private static final String ON_CONFLICT_SQL = """
+            ON CONFLICT (product_id) DO UPDATE SET
+                product_name = EXCLUDED.product_name,
+                available_quantity = GREATEST(EXCLUDED.available_quantity - i.reserved_quantity, 0),
+                updated_at = LOCALTIMESTAMP
+            WHERE i.product_name IS DISTINCT FROM EXCLUDED.product_name
+               OR i.available_quantity IS DISTINCT FROM GREATEST(EXCLUDED.available_quantity - i.reserved_quantity, 0)
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO inventory_items AS i (product_id, product_name, available_quantity, reserved_quantity, updated_at)
+            SELECT t.product_id, COALESCE(t.product_name, t.product_id), GREATEST(t.stock, 0), 0, LOCALTIMESTAMP
+            FROM unnest(?::varchar[], ?::varchar[], ?::int[]) AS t(product_id, product_name, stock)
+            """ + ON_CONFLICT_SQL;
+
+    private static final String UPSERT_CATALOG_SQL = """
+            INSERT INTO inventory_items AS i (product_id, product_name, available_quantity, reserved_quantity, updated_at)
+            SELECT p.internal_id, COALESCE(p.name, p.internal_id), GREATEST(p.stock, 0), 0, LOCALTIMESTAMP
+            FROM products p
+            WHERE p.internal_id IS NOT NULL AND p.stock IS NOT NULL
+            ORDER BY p.internal_id
+            """ + ON_CONFLICT_SQL;
+
+    // Items whose product leaves the catalog keep their reservations but offer nothing new;
+    // items that never came from the catalog are not touched
+    private static final String RETIRE_SQL = """
+            UPDATE inventory_items i SET available_quantity = 0, updated_at = LOCALTIMESTAMP
+            WHERE i.available_quantity <> 0
+              AND EXISTS (SELECT 1 FROM products p WHERE p.internal_id = i.product_id)
+              AND NOT EXISTS (SELECT 1 FROM %s r WHERE r.internal_id = i.product_id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Upserts the inventory items of the batch. When the same internal ID occurs more than once,
+     * the last occurrence wins.
+     *
+     * @return number of items inserted or updated
+     */
+    public int sync(List<Product> products) {
+        // Sorted, so batches racing on overlapping items lock them in the same order
+        Map<String, Product> byProductId = new TreeMap<>();
+        for (Product product : products) {
+            if (product.getInternalId() != null && product.getStock() != null) {
+                byProductId.put(product.getInternalId(), product);
+            }
+        }
+        if (byProductId.isEmpty()) {
+            return 0;
+        }
+
+        String[] productIds = new String[byProductId.size()];
+        String[] names = new String[productIds.length];
+        Integer[] stock = new Integer[productIds.length];
+        int i = 0;
+        for (Product product : byProductId.values()) {
+            productIds[i] = product.getInternalId();
+            names[i] = product.getName();
+            stock[i] = product.getStock();
+            i++;
+        }
+
+        Integer updated = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                statement.setArray(1, connection.createArrayOf("varchar", productIds));
+                statement.setArray(2, connection.createArrayOf("varchar", names));
+                statement.setArray(3, connection.createArrayOf("int4", stock));
+                return statement.executeUpdate();
+            }
+        });
+        return updated == null ? 0 : updated;
+    }
+
+    /**
+     * Leaves nothing available on the items of products in {@code products} that the catalog in
+     * {@code replacement} drops. Must run in the transaction that replaces the catalog, before the swap.
+     *
+     * @return number of items emptied
+     */
+    public int retireReplaced(String replacement) {
+        return jdbcTemplate.update(RETIRE_SQL.formatted(replacement));
+    }
+
+    /**
+     * Projects the whole {@code products} table onto the inventory in one set-based statement,
+     * for a catalog that was just swapped in. Must run in the transaction that replaced the catalog.
+     *
+     * @return number of items inserted or updated
+     */
+    public int syncCatalog() {
+        return jdbcTemplate.update(UPSERT_CATALOG_SQL);
+    }
+}
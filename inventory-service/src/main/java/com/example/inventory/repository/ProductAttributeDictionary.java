@@ -0,0 +1,270 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.Product;
+import com.example.inventory.entity.ProductAttribute;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Two-way cache of {@code product_attributes}, shared by every thread that reads or writes products.
+ * <p>
+ * An attribute's id never changes and values are never deleted, so cached entries never go stale
+ * and every instance agrees on them. Values seen for the first time are inserted with
+ * {@code ON CONFLICT DO NOTHING} and read back, so threads and instances racing on the same value
+ * all end up with the one row that won. The insert commits in its own transaction: an id is only
+ * cached once every other transaction can see its row.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ProductAttributeDictionary {
+
+    private static final String LOAD_SQL = "SELECT id, kind, value FROM product_attributes";
+
+    private static final String INSERT_SQL = """
+            INSERT INTO product_attributes (kind, value)
+            SELECT ?, value FROM unnest(?::varchar[]) AS t(value)
+            ON CONFLICT (kind, value) DO NOTHING
+            """;
+
+    private static final String SELECT_SQL =
+            "SELECT id, value FROM product_attributes WHERE kind = ? AND value = ANY(?::varchar[])";
+
+    private static final Map<ProductAttribute.Kind, Function<Product, String>> COLUMNS = Map.of(
+            ProductAttribute.Kind.BRAND, Product::getBrand,
+            ProductAttribute.Kind.CATEGORY, Product::getCategory,
+            ProductAttribute.Kind.CURRENCY, Product::getCurrency,
+            ProductAttribute.Kind.COLOR, Product::getColor,
+            ProductAttribute.Kind.SIZE, Product::getSize,
+            ProductAttribute.Kind.AVAILABILITY, Product::getAvailability);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<ProductAttribute.Kind, Map<String, Integer>> ids = newIdMaps();
+    // Indexed by id; replaced as a whole under the lock, so readers never lock
+    private volatile String[] valuesById = new String[0];
+    private volatile boolean loaded;
+
+    /**
+     * @return the value's id, or null if the value is null or has never been stored
+     */
+    public Integer find(ProductAttribute.Kind kind, String value) {
+        if (value == null) {
+            return null;
+        }
+        Integer id = known(kind).get(value);
+        if (id == null) {
+            // Possibly added by another instance
+            List<Object[]> rows = select(kind, List.of(value));
+            if (!rows.isEmpty()) {
+                register(kind, rows);
+                id = (Integer) rows.get(0)[0];
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @return the value's id, storing the value if it is new; null for null
+     */
+    public Integer resolve(ProductAttribute.Kind kind, String value) {
+        if (value == null) {
+            return null;
+        }
+        Integer id = known(kind).get(value);
+        return id != null ? id : resolveMissing(kind, List.of(value)).get(value);
+    }
+
+    /**
+     * Returns the ids of one attribute column of the products, in iteration order, storing the
+     * values seen for the first time in one round trip.
+     */
+    public Integer[] ids(ProductAttribute.Kind kind, Collection<Product> products) {
+        Function<Product, String> column = COLUMNS.get(kind);
+        Map<String, Integer> known = known(kind);
+        Integer[] result = new Integer[products.size()];
+        TreeSet<String> missing = null;
+        int i = 0;
+        for (Product product : products) {
+            String value = column.apply(product);
+            if (value != null && (result[i] = known.get(value)) == null) {
+                if (missing == null) {
+                    missing = new TreeSet<>();
+                }
+                missing.add(value);
+            }
+            i++;
+        }
+        if (missing != null) {
+            Map<String, Integer> added = resolveMissing(kind, missing);
+            i = 0;
+            for (Product product : products) {
+                String value = column.apply(product);
+                if (value != null && result[i] == null) {
+                    result[i] = added.get(value);
+                }
+                i++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores every new attribute value of the products. Run before a write transaction, this keeps
+     * the inserts out of it; failures are left for the write, which isolates the offending rows.
+     */
+    public void resolveAll(Collection<Product> products) {
+        try {
+            for (ProductAttribute.Kind kind : ProductAttribute.Kind.values()) {
+                ids(kind, products);
+            }
+        } catch (DataAccessException e) {
+            log.debug("Could not store new product attribute values up front: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if no attribute has the id
+     */
+    public String value(int id) {
+        loadIfNeeded();
+        String[] snapshot = valuesById;
+        String value = id < snapshot.length ? snapshot[id] : null;
+        if (value != null) {
+            return value;
+        }
+        // Added by another instance since the dictionary was loaded
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT kind, value FROM product_attributes WHERE id = ?", id);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("No product attribute with id " + id);
+        }
+        value = (String) rows.get(0).get("value");
+        List<Object[]> entry = new ArrayList<>(1);
+        entry.add(new Object[]{id, value});
+        register(ProductAttribute.Kind.valueOf((String) rows.get(0).get("kind")), entry);
+        return value;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, Integer> kindIds : ids.values()) {
+            size += kindIds.size();
+        }
+        return size;
+    }
+
+    private Map<String, Integer> known(ProductAttribute.Kind kind) {
+        loadIfNeeded();
+        return ids.get(kind);
+    }
+
+    // The table only exists once the schema is up, so the first use loads it
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            Map<ProductAttribute.Kind, List<Object[]>> rows = new EnumMap<>(ProductAttribute.Kind.class);
+            jdbcTemplate.query(LOAD_SQL, (RowCallbackHandler) row -> {
+                rows.computeIfAbsent(ProductAttribute.Kind.valueOf(row.getString(2)), kind -> new ArrayList<>())
+                        .add(new Object[]{row.getInt(1), row.getString(3)});
+            });
+            rows.forEach(this::register);
+            loaded = true;
+            log.info("Loaded {} product attribute values", size());
+        }
+    }
+
+    private Map<String, Integer> resolveMissing(ProductAttribute.Kind kind, Collection<String> missing) {
+        // Sorted, so transactions racing on overlapping values lock them in the same order
+        List<String> sorted = new ArrayList<>(new TreeSet<>(missing));
+        TransactionTemplate ownTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Object[]> rows = ownTransaction.execute(status -> {
+            jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                    statement.setString(1, kind.name());
+                    statement.setArray(2, connection.createArrayOf("varchar", sorted.toArray()));
+                    return statement.executeUpdate();
+                }
+            });
+            return select(kind, sorted);
+        });
+        if (rows.size() != sorted.size()) {
+            throw new IllegalStateException("Stored " + sorted.size() + " " + kind + " values but found " + rows.size());
+        }
+        register(kind, rows);
+        log.debug("Resolved {} new {} values", sorted.size(), kind);
+
+        Map<String, Integer> resolved = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            resolved.put((String) row[1], (Integer) row[0]);
+        }
+        return resolved;
+    }
+
+    private List<Object[]> select(ProductAttribute.Kind kind, List<String> values) {
+        List<Object[]> rows = jdbcTemplate.execute((ConnectionCallback<List<Object[]>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+                statement.setString(1, kind.name());
+                statement.setArray(2, connection.createArrayOf("varchar", values.toArray()));
+                List<Object[]> found = new ArrayList<>(values.size());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        found.add(new Object[]{resultSet.getInt(1), resultSet.getString(2)});
+                    }
+                }
+                return found;
+            }
+        });
+        return rows == null ? List.of() : rows;
+    }
+
+    private synchronized void register(ProductAttribute.Kind kind, List<Object[]> rows) {
+        String[] snapshot = valuesById;
+        int maxId = snapshot.length - 1;
+        for (Object[] row : rows) {
+            maxId = Math.max(maxId, (Integer) row[0]);
+        }
+        String[] updated = Arrays.copyOf(snapshot, maxId + 1);
+        Map<String, Integer> kindIds = ids.get(kind);
+        for (Object[] row : rows) {
+            updated[(Integer) row[0]] = (String) row[1];
+            kindIds.putIfAbsent((String) row[1], (Integer) row[0]);
+        }
+        valuesById = updated;
+    }
+
+    private static Map<ProductAttribute.Kind, Map<String, Integer>> newIdMaps() {
+        Map<ProductAttribute.Kind, Map<String, Integer>> maps = new EnumMap<>(ProductAttribute.Kind.class);
+        for (ProductAttribute.Kind kind : ProductAttribute.Kind.values()) {
+            maps.put(kind, new ConcurrentHashMap<>());
+        }
+        return maps;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.inventory.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Moves a {@code products} table that still stores attributes as text onto attribute ids.
+ * <p>
+ * Schema updates add the id columns but never touch existing ones, so on the first start after
+ * the change every distinct value is copied into {@code product_attributes}, rows are pointed at
+ * them, and the text columns are dropped, together with the indexes built on them. Runs after the
+ * schema update and before listeners start consuming imports.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class ProductAttributeMigration {
+
+    // Legacy text column and the kind of attribute it holds
+    private static final Map<String, String> COLUMNS = Map.of(
+            "brand", "BRAND",
+            "category", "CATEGORY",
+            "currency", "CURRENCY",
+            "color", "COLOR",
+            "size", "SIZE",
+            "availability", "AVAILABILITY");
+
+    private static final String LEGACY_COLUMNS_SQL = """
+            SELECT column_name FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = 'products'
+              AND column_name IN ('brand', 'category', 'currency', 'color', 'size', 'availability')
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        List<String> legacy = jdbcTemplate.queryForList(LEGACY_COLUMNS_SQL, String.class);
+        if (legacy.isEmpty()) {
+            return;
+        }
+        log.info("Moving product columns {} to product_attributes", legacy);
+        long started = System.nanoTime();
+
+        Integer rows = transactionTemplate.execute(status -> {
+            for (String column : legacy) {
+                jdbcTemplate.update("INSERT INTO product_attributes (kind, value) SELECT DISTINCT '"
+                        + COLUMNS.get(column) + "', " + column + " FROM products WHERE " + column
+                        + " IS NOT NULL ON CONFLICT (kind, value) DO NOTHING");
+            }
+            // One pass over the table; ids already written by a new-style import are kept
+            String assignments = legacy.stream()
+                    .map(column -> column + "_id = COALESCE(p." + column + "_id, (SELECT a.id FROM product_attributes a "
+                            + "WHERE a.kind = '" + COLUMNS.get(column) + "' AND a.value = p." + column + "))")
+                    .collect(Collectors.joining(", "));
+            int updated = jdbcTemplate.update("UPDATE products p SET " + assignments);
+
+            jdbcTemplate.execute("ALTER TABLE products " + legacy.stream()
+                    .map(column -> "DROP COLUMN " + column)
+                    .collect(Collectors.joining(", ")));
+            // Dropping the text columns dropped these with them
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_product_category_id ON products (category_id, id)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_product_brand_id ON products (brand_id, id)");
+            return updated;
+        });
+        log.info("Moved {} products to product_attributes in {} ms", rows, (System.nanoTime() - started) / 1_000_000);
+    }
+}
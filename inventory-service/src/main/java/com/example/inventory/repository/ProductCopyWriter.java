@@ -0,0 +1,193 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.Product;
+import com.example.inventory.entity.ProductAttribute;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Bulk-loads products through the PostgreSQL {@code COPY ... FROM STDIN (FORMAT binary)} protocol.
+ * Rows bypass the persistence context entirely, so a whole chunk costs one round-trip.
+ * Attribute columns are written as their {@link ProductAttributeDictionary} ids.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductCopyWriter {
+
+    private static final String COPY_SQL = "COPY %s (internal_id, name, description, brand_id, category_id, "
+            + "price, currency_id, stock, ean, color_id, size_id, availability_id, content_hash, created_at, "
+            + "updated_at) FROM STDIN (FORMAT binary)";
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final short FIELD_COUNT = 15;
+    private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final short NUMERIC_POSITIVE = 0x0000;
+    private static final short NUMERIC_NEGATIVE = 0x4000;
+    private static final BigInteger NBASE = BigInteger.valueOf(10000);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductAttributeDictionary productAttributeDictionary;
+
+    /**
+     * Copies all products in a single COPY statement. The statement is atomic: either every row
+     * is loaded or the batch is rejected as a whole.
+     *
+     * @return number of rows loaded
+     */
+    public long copy(List<Product> products) {
+        return copy(products, "products");
+    }
+
+    /**
+     * Copies into another table with the columns of {@code products}, such as a staging table.
+     */
+    public long copy(List<Product> products, String table) {
+        String sql = COPY_SQL.formatted(table);
+        byte[] payload = encode(products);
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(sql, new ByteArrayInputStream(payload));
+            } catch (IOException e) {
+                throw new SQLException("Failed to stream COPY payload", e);
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    // Package-private for tests
+    byte[] encode(List<Product> products) {
+        Integer[] brands = productAttributeDictionary.ids(ProductAttribute.Kind.BRAND, products);
+        Integer[] categories = productAttributeDictionary.ids(ProductAttribute.Kind.CATEGORY, products);
+        Integer[] currencies = productAttributeDictionary.ids(ProductAttribute.Kind.CURRENCY, products);
+        Integer[] colors = productAttributeDictionary.ids(ProductAttribute.Kind.COLOR, products);
+        Integer[] sizes = productAttributeDictionary.ids(ProductAttribute.Kind.SIZE, products);
+        Integer[] availabilities = productAttributeDictionary.ids(ProductAttribute.Kind.AVAILABILITY, products);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(products.size() * 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        long timestamp = ChronoUnit.MICROS.between(POSTGRES_EPOCH, LocalDateTime.now());
+        try {
+            out.write(SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                out.writeShort(FIELD_COUNT);
+                writeText(out, product.getInternalId());
+                writeText(out, product.getName());
+                writeText(out, product.getDescription());
+                writeInt(out, brands[i]);
+                writeInt(out, categories[i]);
+                writeNumeric(out, product.getPrice());
+                writeInt(out, currencies[i]);
+                writeInt(out, product.getStock());
+                writeText(out, product.getEan());
+                writeInt(out, colors[i]);
+                writeInt(out, sizes[i]);
+                writeInt(out, availabilities[i]);
+                writeLong(out, product.getContentHash());
+                writeTimestamp(out, timestamp);
+                writeTimestamp(out, timestamp);
+            }
+
+            out.writeShort(-1); // trailer
+        } catch (IOException e) {
+            // ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static void writeInt(DataOutputStream out, Integer value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    private static void writeTimestamp(DataOutputStream out, long micros) throws IOException {
+        out.writeInt(8);
+        out.writeLong(micros);
+    }
+
+    /**
+     * Writes a numeric in PostgreSQL's binary layout: base-10000 digits with a weight
+     * (exponent of the first digit), sign and display scale.
+     */
+    static void writeNumeric(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        int scale = Math.max(value.scale(), 0);
+        BigInteger unscaled = value.setScale(scale).unscaledValue().abs();
+        // Align the fraction on a base-10000 digit boundary
+        int alignedScale = (scale + 3) / 4 * 4;
+        unscaled = unscaled.multiply(BigInteger.TEN.pow(alignedScale - scale));
+
+        short[] digits = new short[unscaled.bitLength() / 13 + 2];
+        int count = 0;
+        while (unscaled.signum() > 0) {
+            BigInteger[] divRem = unscaled.divideAndRemainder(NBASE);
+            digits[count++] = divRem[1].shortValue();
+            unscaled = divRem[0];
+        }
+
+        // digits[] is least significant first; drop trailing zero groups
+        int lowest = 0;
+        while (lowest < count && digits[lowest] == 0) {
+            lowest++;
+        }
+        int ndigits = count - lowest;
+        int weight = ndigits == 0 ? 0 : count - 1 - alignedScale / 4;
+
+        out.writeInt(8 + 2 * ndigits);
+        out.writeShort(ndigits);
+        out.writeShort(weight);
+        out.writeShort(value.signum() < 0 ? NUMERIC_NEGATIVE : NUMERIC_POSITIVE);
+        out.writeShort(scale);
+        for (int i = count - 1; i >= lowest; i--) {
+            out.writeShort(digits[i]);
+        }
+    }
+}
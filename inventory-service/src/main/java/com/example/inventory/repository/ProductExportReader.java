@@ -0,0 +1,179 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.ProductAttribute;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the {@code products} table through a server-side cursor.
+ * <p>
+ * The PostgreSQL driver only fetches rows in batches of the fetch size when auto-commit is off;
+ * otherwise it buffers the whole result set in memory. Rows are handed to the caller straight
+ * from the result set, without mapping them to entities; attribute ids are decoded through the
+ * {@link ProductAttributeDictionary} rather than joined, so rows stream in index order.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductExportReader {
+
+    private static final String COLUMNS = "id, internal_id, name, description, brand_id, category_id, price, "
+            + "currency_id, stock, ean, color_id, size_id, availability_id, updated_at";
+
+    // Columns holding attribute ids, by their 1-based index in COLUMNS
+    private static final boolean[] ATTRIBUTE_COLUMNS = new boolean[15];
+
+    static {
+        for (int column : new int[]{5, 6, 8, 11, 12, 13}) {
+            ATTRIBUTE_COLUMNS[column] = true;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductAttributeDictionary productAttributeDictionary;
+
+    @Value("${product-export.fetch-size}")
+    private int fetchSize;
+
+    /**
+     * Row count and latest change of the table; cheap enough to tell whether a snapshot of the
+     * catalog is still current.
+     */
+    public record CatalogVersion(long rows, LocalDateTime maxUpdatedAt) {
+    }
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(Row row) throws SQLException, IOException;
+    }
+
+    /**
+     * The cursor's current row, with the columns of {@code products} in their usual order and
+     * attribute columns as their values.
+     */
+    public final class Row {
+
+        private final ResultSet resultSet;
+
+        private Row(ResultSet resultSet) {
+            this.resultSet = resultSet;
+        }
+
+        public Object getObject(int column) throws SQLException {
+            if (ATTRIBUTE_COLUMNS[column]) {
+                return getString(column);
+            }
+            return resultSet.getObject(column);
+        }
+
+        public String getString(int column) throws SQLException {
+            if (ATTRIBUTE_COLUMNS[column]) {
+                int id = resultSet.getInt(column);
+                return resultSet.wasNull() ? null : productAttributeDictionary.value(id);
+            }
+            return resultSet.getString(column);
+        }
+
+        public long getLong(int column) throws SQLException {
+            return resultSet.getLong(column);
+        }
+
+        public BigDecimal getBigDecimal(int column) throws SQLException {
+            return resultSet.getBigDecimal(column);
+        }
+
+        public Timestamp getTimestamp(int column) throws SQLException {
+            return resultSet.getTimestamp(column);
+        }
+    }
+
+    /**
+     * Streams the products matching the filters in id order; null filters match everything.
+     *
+     * @return number of rows read
+     */
+    public long forEach(String category, String brand, LocalDateTime updatedSince, RowHandler handler)
+            throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM products WHERE TRUE");
+        List<Object> params = new ArrayList<>(3);
+        if (category != null) {
+            Integer categoryId = productAttributeDictionary.find(ProductAttribute.Kind.CATEGORY, category);
+            if (categoryId == null) {
+                return 0;
+            }
+            sql.append(" AND category_id = ?");
+            params.add(categoryId);
+        }
+        if (brand != null) {
+            Integer brandId = productAttributeDictionary.find(ProductAttribute.Kind.BRAND, brand);
+            if (brandId == null) {
+                return 0;
+            }
+            sql.append(" AND brand_id = ?");
+            params.add(brandId);
+        }
+        if (updatedSince != null) {
+            sql.append(" AND updated_at >= ?");
+            params.add(Timestamp.valueOf(updatedSince));
+        }
+        sql.append(" ORDER BY id");
+
+        try {
+            Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection ->
+                    query(connection, sql.toString(), params, handler));
+            return rows == null ? 0 : rows;
+        } catch (UncheckedIOException e) {
+            // The client went away mid-export
+            throw e.getCause();
+        }
+    }
+
+    public CatalogVersion catalogVersion() {
+        return jdbcTemplate.queryForObject("SELECT count(*), max(updated_at) FROM products", (row, rowNum) -> {
+            Timestamp maxUpdatedAt = row.getTimestamp(2);
+            return new CatalogVersion(row.getLong(1), maxUpdatedAt == null ? null : maxUpdatedAt.toLocalDateTime());
+        });
+    }
+
+    private long query(Connection connection, String sql, List<Object> params, RowHandler handler)
+            throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            long rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                Row row = new Row(resultSet);
+                while (resultSet.next()) {
+                    handler.handle(row);
+                    rows++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        } finally {
+            // Read-only: ending the transaction just closes the cursor
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.inventory.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Adds {@code uk_product_internal_id} to a {@code products} table that predates it.
+ * <p>
+ * Schema updates skip a unique constraint the existing rows violate, and only log the failure,
+ * after which DELTA imports fail on their {@code ON CONFLICT (internal_id)}. On the first start
+ * without the constraint, all but the latest row of each internal ID are deleted and the
+ * constraint is added in the same transaction. Runs after the schema update and before listeners
+ * start consuming imports.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class ProductInternalIdMigration {
+
+    private static final String CONSTRAINT_SQL = """
+            SELECT count(*) FROM pg_constraint
+            WHERE conrelid = 'products'::regclass AND conname = 'uk_product_internal_id'
+            """;
+
+    // The row with the highest id wins, as when a replaced catalog is deduplicated
+    private static final String DELETE_DUPLICATES_SQL = """
+            DELETE FROM products WHERE id IN (
+                SELECT id FROM (
+                    SELECT id, row_number() OVER (PARTITION BY internal_id ORDER BY id DESC) AS copy
+                    FROM products WHERE internal_id IS NOT NULL) d
+                WHERE d.copy > 1)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        Integer constraints = jdbcTemplate.queryForObject(CONSTRAINT_SQL, Integer.class);
+        if (constraints != null && constraints > 0) {
+            return;
+        }
+        log.info("Adding uk_product_internal_id to products");
+        long started = System.nanoTime();
+
+        Integer duplicates = transactionTemplate.execute(status -> {
+            // Keeps imports from adding new duplicates between the delete and the constraint
+            jdbcTemplate.execute("LOCK TABLE products IN SHARE ROW EXCLUSIVE MODE");
+            int deleted = jdbcTemplate.update(DELETE_DUPLICATES_SQL);
+            jdbcTemplate.execute("ALTER TABLE products ADD CONSTRAINT uk_product_internal_id UNIQUE (internal_id)");
+            return deleted;
+        });
+        log.info("Deleted {} duplicate products and added uk_product_internal_id in {} ms", duplicates,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+}
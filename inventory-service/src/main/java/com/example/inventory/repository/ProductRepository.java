@@ -1,12 +1,32 @@
 package com.example.inventory.repository;
 
 import com.example.inventory.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findByInternalId(String internalId);
+
+    List<Product> findByInternalIdIn(Collection<String> internalIds);
+
+    @Query("SELECT p.internalId FROM Product p WHERE p.ean = :ean ORDER BY p.id")
+    List<String> findInternalIdsByEan(@Param("ean") String ean);
+
+    // Keyset pages: one method per filter combination, so each query can use its own index
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    List<Product> findByCategoryAndIdGreaterThanOrderByIdAsc(String category, Long afterId, Pageable pageable);
+
+    List<Product> findByBrandAndIdGreaterThanOrderByIdAsc(String brand, Long afterId, Pageable pageable);
+
+    List<Product> findByCategoryAndBrandAndIdGreaterThanOrderByIdAsc(String category, String brand, Long afterId,
+            Pageable pageable);
 }
@@ -0,0 +1,131 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-job staging tables for full catalog replacement.
+ * <p>
+ * A staging table has the columns of {@code products} but is UNLOGGED and has no indexes or
+ * constraints, so chunks are copied in without WAL or per-row index maintenance. When the job
+ * completes, {@link #swapIn} builds the live table's constraints and indexes once and replaces
+ * {@code products} with it inside the caller's transaction, so readers see either the old or the
+ * new catalog.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStagingTable {
+
+    private static final String CONSTRAINTS_SQL = """
+            SELECT conname AS name, pg_get_constraintdef(oid) AS definition
+            FROM pg_constraint
+            WHERE conrelid = 'products'::regclass AND contype IN ('p', 'u')
+            """;
+
+    // Indexes that do not back a constraint
+    private static final String INDEXES_SQL = """
+            SELECT i.relname AS name, pg_get_indexdef(i.oid) AS definition
+            FROM pg_index x
+            JOIN pg_class i ON i.oid = x.indexrelid
+            WHERE x.indrelid = 'products'::regclass
+              AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = x.indexrelid)
+            """;
+
+    // Rows copied into the staging table, next to those the job's ledger recorded as copied
+    private static final String STAGED_ROWS_SQL = """
+            SELECT (SELECT count(*) FROM %s) AS staged,
+                   (SELECT COALESCE(sum(inserted_rows), 0) FROM import_chunks WHERE job_id = ?) AS recorded,
+                   (SELECT COALESCE(attempt, 1) FROM import_jobs WHERE id = ?) AS attempt
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCopyWriter productCopyWriter;
+
+    public static String tableName(String jobId) {
+        return "products_staging_" + jobId.replaceAll("[^A-Za-z0-9]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Creates the job's empty staging table. Ids continue after the live table's, so they are
+     * never reused across catalogs.
+     */
+    public void create(String jobId) {
+        String table = tableName(jobId);
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE " + table + " (LIKE products INCLUDING DEFAULTS INCLUDING IDENTITY)");
+        Long nextId = jdbcTemplate.queryForObject("SELECT COALESCE(max(id), 0) + 1 FROM products", Long.class);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextId);
+    }
+
+    public long copy(String jobId, List<Product> products) {
+        return productCopyWriter.copy(products, tableName(jobId));
+    }
+
+    /**
+     * Replaces {@code products} with the job's staging table. Must run in a transaction; the live
+     * table is only locked for the final drop and renames.
+     *
+     * @return number of duplicate rows removed before the swap
+     * @throws IllegalStateException if the staging table lost rows the chunk ledger recorded;
+     *         {@code products} is left as it is
+     */
+    public int swapIn(String jobId) {
+        String staging = tableName(jobId);
+        String prefix = staging + "_";
+
+        // Crash recovery empties unlogged tables while the ledger still marks their chunks done.
+        // Chunks of an abandoned attempt may have staged rows the ledger no longer records.
+        Map<String, Object> counts = jdbcTemplate.queryForMap(STAGED_ROWS_SQL.formatted(staging), jobId, jobId);
+        long staged = ((Number) counts.get("staged")).longValue();
+        long recorded = ((Number) counts.get("recorded")).longValue();
+        boolean resumed = ((Number) counts.get("attempt")).intValue() > 1;
+        if (resumed ? staged < recorded : staged != recorded) {
+            throw new IllegalStateException("Staging table of import job " + jobId + " holds " + staged
+                    + " rows, but its chunk ledger recorded " + recorded);
+        }
+
+        // One row per internal ID: the latest copy wins, covering duplicates in the file and chunks
+        // replayed by a resumed attempt
+        int duplicates = jdbcTemplate.update("DELETE FROM " + staging + " a USING " + staging + " b "
+                + "WHERE a.internal_id = b.internal_id AND a.id < b.id");
+        jdbcTemplate.execute("ALTER TABLE " + staging + " SET LOGGED");
+
+        // Build the live table's constraints and indexes once, under temporary names
+        List<Map<String, Object>> constraints = jdbcTemplate.queryForList(CONSTRAINTS_SQL);
+        for (int i = 0; i < constraints.size(); i++) {
+            jdbcTemplate.execute("ALTER TABLE " + staging + " ADD CONSTRAINT " + prefix + "c" + i + " "
+                    + constraints.get(i).get("definition"));
+        }
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList(INDEXES_SQL);
+        for (int i = 0; i < indexes.size(); i++) {
+            String definition = (String) indexes.get(i).get("definition");
+            jdbcTemplate.execute(definition.replaceFirst("^(CREATE (?:UNIQUE )?INDEX )\\S+ (ON (?:ONLY )?)\\S+ ",
+                    "$1" + prefix + "i" + i + " $2" + staging + " "));
+        }
+
+        jdbcTemplate.execute("LOCK TABLE products IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("DROP TABLE products");
+        jdbcTemplate.execute("ALTER TABLE " + staging + " RENAME TO products");
+        for (int i = 0; i < constraints.size(); i++) {
+            jdbcTemplate.execute("ALTER TABLE products RENAME CONSTRAINT " + prefix + "c" + i + " TO "
+                    + constraints.get(i).get("name"));
+        }
+        for (int i = 0; i < indexes.size(); i++) {
+            jdbcTemplate.execute("ALTER INDEX " + prefix + "i" + i + " RENAME TO " + indexes.get(i).get("name"));
+        }
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('products', 'id')", String.class);
+        if (sequence != null) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RENAME TO products_id_seq");
+        }
+        return duplicates;
+    }
+
+    public void drop(String jobId) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableName(jobId));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.Product;
+import com.example.inventory.entity.ProductAttribute;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Upserts products keyed by {@code internal_id} in one set-based statement per batch.
+ * <p>
+ * Rows are passed as column arrays and expanded with {@code unnest}. Existing rows are only
+ * rewritten when their content hash differs, so unchanged products cost no write at all.
+ * {@code RETURNING (xmax = 0)} tells inserted rows apart from updated ones; unchanged rows
+ * are not returned.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductUpsertWriter {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO products (internal_id, name, description, brand_id, category_id, price, currency_id, stock,
+                                  ean, color_id, size_id, availability_id, content_hash, created_at, updated_at)
+            SELECT t.*, LOCALTIMESTAMP, LOCALTIMESTAMP
+            FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::int[], ?::int[], ?::numeric[],
+                        ?::int[], ?::int[], ?::varchar[], ?::int[], ?::int[], ?::int[], ?::bigint[])
+                 AS t(internal_id, name, description, brand_id, category_id, price, currency_id, stock,
+                      ean, color_id, size_id, availability_id, content_hash)
+            ON CONFLICT (internal_id) DO UPDATE SET
+                name = EXCLUDED.name,
+                description = EXCLUDED.description,
+                brand_id = EXCLUDED.brand_id,
+                category_id = EXCLUDED.category_id,
+                price = EXCLUDED.price,
+                currency_id = EXCLUDED.currency_id,
+                stock = EXCLUDED.stock,
+                ean = EXCLUDED.ean,
+                color_id = EXCLUDED.color_id,
+                size_id = EXCLUDED.size_id,
+                availability_id = EXCLUDED.availability_id,
+                content_hash = EXCLUDED.content_hash,
+                updated_at = LOCALTIMESTAMP
+            WHERE products.content_hash IS DISTINCT FROM EXCLUDED.content_hash
+            RETURNING (xmax = 0) AS inserted
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductAttributeDictionary productAttributeDictionary;
+
+    /**
+     * Upserts the batch atomically. When the same internal ID occurs more than once,
+     * the last occurrence wins.
+     */
+    public UpsertResult upsert(List<Product> products) {
+        Collection<Product> rows = deduplicate(products);
+        UpsertResult result = jdbcTemplate.execute((ConnectionCallback<UpsertResult>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                int index = 1;
+                statement.setArray(index++, array(connection, "varchar", rows, Product::getInternalId));
+                statement.setArray(index++, array(connection, "varchar", rows, Product::getName));
+                statement.setArray(index++, array(connection, "varchar", rows, Product::getDescription));
+                statement.setArray(index++, attributes(connection, ProductAttribute.Kind.BRAND, rows));
+                statement.setArray(index++, attributes(connection, ProductAttribute.Kind.CATEGORY, rows));
+                statement.setArray(index++, array(connection, "numeric", rows, Product::getPrice));
+                statement.setArray(index++, attributes(connection, ProductAttribute.Kind.CURRENCY, rows));
+                statement.setArray(index++, array(connection, "int4", rows, Product::getStock));
+                statement.setArray(index++, array(connection, "varchar", rows, Product::getEan));
+                statement.setArray(index++, attributes(connection, ProductAttribute.Kind.COLOR, rows));
+                statement.setArray(index++, attributes(connection, ProductAttribute.Kind.SIZE, rows));
+                statement.setArray(index++, attributes(connection, ProductAttribute.Kind.AVAILABILITY, rows));
+                statement.setArray(index, array(connection, "int8", rows, Product::getContentHash));
+
+                long inserted = 0;
+                long updated = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        if (resultSet.getBoolean(1)) {
+                            inserted++;
+                        } else {
+                            updated++;
+                        }
+                    }
+                }
+                return new UpsertResult(inserted, updated, rows.size() - inserted - updated);
+            }
+        });
+        return result == null ? new UpsertResult(0, 0, 0) : result;
+    }
+
+    private static Collection<Product> deduplicate(List<Product> products) {
+        Map<String, Product> byInternalId = new LinkedHashMap<>(products.size() * 2);
+        List<Product> withoutId = new ArrayList<>();
+        for (Product product : products) {
+            if (product.getInternalId() == null) {
+                withoutId.add(product);
+            } else {
+                byInternalId.put(product.getInternalId(), product);
+            }
+        }
+        if (withoutId.isEmpty()) {
+            return byInternalId.values();
+        }
+        List<Product> rows = new ArrayList<>(byInternalId.values());
+        rows.addAll(withoutId);
+        return rows;
+    }
+
+    private Array attributes(Connection connection, ProductAttribute.Kind kind, Collection<Product> rows)
+            throws SQLException {
+        return connection.createArrayOf("int4", productAttributeDictionary.ids(kind, rows));
+    }
+
+    private static Array array(Connection connection, String type, Collection<Product> rows,
+            Function<Product, Object> column) throws SQLException {
+        Object[] values = switch (type) {
+            case "numeric" -> new BigDecimal[rows.size()];
+            case "int4" -> new Integer[rows.size()];
+            case "int8" -> new Long[rows.size()];
+            default -> new String[rows.size()];
+        };
+        int i = 0;
+        for (Product row : rows) {
+            values[i++] = column.apply(row);
+        }
+        return connection.createArrayOf(type, values);
+    }
+
+    public record UpsertResult(long inserted, long updated, long unchanged) {
+    }
+}
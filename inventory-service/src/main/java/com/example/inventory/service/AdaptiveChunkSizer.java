@@ -0,0 +1,99 @@
+package com.example.inventory.service;
+
+/**
+ * Chooses the number of rows per import chunk for one job.
+ * <p>
+ * Consumers report their average commit time per row and their error rate through the job's
+ * progress; the sizer steers the chunk size toward the target commit latency, moving at most
+ * a factor of two per adjustment. A rising error rate halves the size so that a bad row forces
+ * a smaller fallback, and the observed bytes per row cap the size at the maximum message size.
+ */
+class AdaptiveChunkSizer {
+
+    private static final double BYTES_SMOOTHING = 0.2;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetLatencyMicros;
+    private final long maxMessageBytes;
+    private final double errorRateThreshold;
+    private final long feedbackIntervalNanos;
+
+    private volatile int chunkSize;
+    private double avgRowBytes;
+    private long nextFeedbackAt;
+
+    AdaptiveChunkSizer(int initialSize, int minSize, int maxSize, long targetLatencyMillis,
+            long maxMessageBytes, double errorRateThreshold, long feedbackIntervalMillis) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetLatencyMicros = targetLatencyMillis * 1000;
+        this.maxMessageBytes = maxMessageBytes;
+        this.errorRateThreshold = errorRateThreshold;
+        this.feedbackIntervalNanos = feedbackIntervalMillis * 1_000_000;
+        this.chunkSize = clamp(initialSize, minSize, maxSize);
+        this.nextFeedbackAt = System.nanoTime() + feedbackIntervalNanos;
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns true at most once per feedback interval, telling the caller to fetch fresh feedback.
+     */
+    synchronized boolean feedbackDue() {
+        long now = System.nanoTime();
+        if (now - nextFeedbackAt < 0) {
+            return false;
+        }
+        nextFeedbackAt = now + feedbackIntervalNanos;
+        return true;
+    }
+
+    /**
+     * Records the encoded size of a published chunk.
+     */
+    synchronized void onPublished(int rows, int bytes) {
+        if (rows == 0) {
+            return;
+        }
+        double rowBytes = (double) bytes / rows;
+        avgRowBytes = avgRowBytes == 0 ? rowBytes : avgRowBytes + BYTES_SMOOTHING * (rowBytes - avgRowBytes);
+
+        int byteLimit = byteLimitedSize();
+        if (chunkSize > byteLimit) {
+            chunkSize = byteLimit;
+        }
+    }
+
+    /**
+     * Applies consumer feedback; {@code null} values mean no chunk has been committed yet.
+     */
+    synchronized void onFeedback(Double avgRowMicros, Double errorRate) {
+        int current = chunkSize;
+        int desired = current;
+
+        if (avgRowMicros != null && avgRowMicros > 0) {
+            desired = (int) Math.min(Integer.MAX_VALUE, targetLatencyMicros / avgRowMicros);
+        }
+        if (errorRate != null && errorRate > errorRateThreshold) {
+            desired = Math.min(desired, current / 2);
+        }
+
+        desired = clamp(desired, current / 2, current * 2);
+        desired = clamp(desired, minSize, maxSize);
+        chunkSize = Math.min(desired, byteLimitedSize());
+    }
+
+    private int byteLimitedSize() {
+        if (avgRowBytes == 0) {
+            return maxSize;
+        }
+        return clamp((int) Math.min(Integer.MAX_VALUE, maxMessageBytes / avgRowBytes), minSize, maxSize);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.inventory.service;
+
+import java.util.TreeMap;
+
+/**
+ * Tracks how far into the source file an import can be resumed from.
+ * <p>
+ * Chunks tile the file without gaps but may be confirmed by the broker out of order, especially
+ * when ranges are published in parallel. Confirmed chunks are parked until the confirmed prefix
+ * reaches them, so the checkpoint only ever covers bytes whose every chunk is safely queued.
+ */
+class CheckpointTracker {
+
+    private final TreeMap<Long, long[]> parked = new TreeMap<>();
+
+    private long offset;
+    private int chunks;
+    private long rows;
+
+    CheckpointTracker(long offset, int chunks, long rows) {
+        this.offset = offset;
+        this.chunks = chunks;
+        this.rows = rows;
+    }
+
+    /**
+     * Moves an untouched checkpoint past bytes that never form chunks, such as the header record.
+     */
+    synchronized void skipTo(long dataStart) {
+        if (offset < dataStart && chunks == 0) {
+            offset = dataStart;
+        }
+    }
+
+    /**
+     * Records that {@code [start, end)} is safely published. A chunk count of zero marks bytes that
+     * held no records.
+     */
+    synchronized void onConfirmed(long start, long end, int chunkCount, long rowCount) {
+        parked.put(start, new long[]{end, chunkCount, rowCount});
+        long[] next;
+        while ((next = parked.remove(offset)) != null) {
+            offset = next[0];
+            chunks += (int) next[1];
+            rows += next[2];
+        }
+    }
+
+    synchronized Checkpoint snapshot() {
+        return new Checkpoint(offset, chunks, rows);
+    }
+
+    record Checkpoint(long offset, int chunks, long rows) {
+    }
+}
@@ -3,123 +3,360 @@ package com.example.inventory.service;
 import com.example.inventory.entity.ImportError;
 import com.example.inventory.entity.ImportJob;
 import com.example.inventory.entity.Product;
+import com.example.inventory.messaging.ProductCacheEvents;
 import com.example.inventory.messaging.dto.ImportChunkEvent;
 import com.example.inventory.messaging.dto.ProductDTO;
+import com.example.inventory.repository.ImportChunkRepository;
 import com.example.inventory.repository.ImportErrorRepository;
+import com.example.inventory.repository.ImportErrorWriter;
 import com.example.inventory.repository.ImportJobRepository;
-import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.InventoryStockWriter;
+import com.example.inventory.repository.ProductAttributeDictionary;
+import com.example.inventory.repository.ProductCopyWriter;
+import com.example.inventory.repository.ProductStagingTable;
+import com.example.inventory.repository.ProductUpsertWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ImportConsumer {
 
-    private final ProductRepository productRepository;
-    private final ImportJobRepository importJobRepository;
+    private final ProductCopyWriter productCopyWriter;
+    private final ProductUpsertWriter productUpsertWriter;
+    private final InventoryStockWriter inventoryStockWriter;
+    private final ProductAttributeDictionary productAttributeDictionary;
+    private final ImportErrorWriter importErrorWriter;
     private final ImportErrorRepository importErrorRepository;
+    private final ImportProgressAggregator importProgressAggregator;
+    private final ImportChunkRepository importChunkRepository;
+    private final ProductStagingTable productStagingTable;
+    private final ImportJobControl importJobControl;
+    private final ProductCacheEvents productCacheEvents;
+    private final ImportJobRepository importJobRepository;
+    private final ImportMetrics importMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${product-import.consumer.row-by-row.max-batch}")
+    private int rowByRowMaxBatch;
 
-    @RabbitListener(queues = "${rabbitmq.queues.product-import}", concurrency = "5-10")
+    @Value("${product-import.consumer.row-by-row.error-rate}")
+    private double rowByRowErrorRate;
+
+    @RabbitListener(queues = "${rabbitmq.queues.product-import}",
+            concurrency = "${product-import.consumer.concurrency}", containerFactory = "importListenerContainerFactory")
     public void consumeChunk(ImportChunkEvent event) {
+        if (importJobControl.isCancelled(event.getJobId())) {
+            log.debug("Dropping chunk {} of cancelled import job {}", event.getChunkNumber(), event.getJobId());
+            return;
+        }
+        if (event.isEndOfStream()) {
+            handleEndOfStream(event);
+            return;
+        }
+        importMetrics.chunkReceived(event.getJobId(), event.getPublishedAt());
+        if (importChunkRepository.existsByJobIdAndStartOffset(event.getJobId(), event.getStartOffset())) {
+            log.info("Chunk {} for job {} was already processed, skipping", event.getChunkNumber(), event.getJobId());
+            return;
+        }
+
         log.info("Processing chunk {} for job {} with {} products", event.getChunkNumber(), event.getJobId(),
                 event.getProducts().size());
+        long startNanos = System.nanoTime();
 
+        List<ProductDTO> records = event.getProducts();
         List<Product> productsToSave = new ArrayList<>();
+        // Position in the chunk of each product to save, for errors found while writing
+        List<Integer> productRows = new ArrayList<>();
         List<ImportError> errors = new ArrayList<>();
 
-        for (ProductDTO dto : event.getProducts()) {
+        for (int i = 0; i < records.size(); i++) {
+            ProductDTO dto = records.get(i);
+            if (dto.getParseError() != null) {
+                errors.add(error(event, i, dto.getParseError()));
+                continue;
+            }
             try {
-                Product product = mapToEntity(dto);
-                productsToSave.add(product);
+                productsToSave.add(mapToEntity(dto));
+                productRows.add(i);
             } catch (Exception e) {
-                errors.add(ImportError.builder()
-                        .jobId(event.getJobId())
-                        .errorMessage(e.getMessage())
-                        .rowData(dto.toString())
-                        .build());
+                errors.add(error(event, i, e.getMessage()));
             }
         }
+        long writeStart = System.nanoTime();
+        importMetrics.chunkMapped(event.getJobId(), writeStart - startNanos);
 
-        // Batch Insert with Fallback
-        int successCount = 0;
-        int failureCount = 0;
+        ProductUpsertWriter.UpsertResult result;
+        int rows = records.size();
+        try {
+            // New attribute values commit on their own, so they are stored before the chunk's transaction
+            productAttributeDictionary.resolveAll(productsToSave);
 
-        if (!productsToSave.isEmpty()) {
-            try {
-                productRepository.saveAll(productsToSave);
-                successCount = productsToSave.size();
-            } catch (Exception e) {
-                log.warn("Batch insert failed for job {}, falling back to row-by-row processing. Error: {}",
-                        event.getJobId(), e.getMessage());
-                // Fallback to row-by-row
-                for (Product product : productsToSave) {
-                    try {
-                        productRepository.save(product);
-                        successCount++;
-                    } catch (Exception ex) {
-                        failureCount++;
-                        String errorMsg = ex.getMessage();
-                        if (errorMsg != null && errorMsg.length() > 1000) {
-                            errorMsg = errorMsg.substring(0, 1000);
-                        }
-                        errors.add(ImportError.builder()
-                                .jobId(event.getJobId())
-                                .errorMessage(errorMsg)
-                                .rowData("InternalID: " + product.getInternalId())
-                                .build());
-                    }
+            // The bulk write, its errors and the ledger entry commit together,
+            // so a redelivered chunk is either skipped up front or rolled back here.
+            TransactionTemplate savepoint = savepointTemplate();
+            BatchWriter writer = new BatchWriter(event, savepoint, productsToSave, productRows, errors);
+            result = transactionTemplate.execute(status -> {
+                ProductUpsertWriter.UpsertResult written = writer.write(0, productsToSave.size());
+                if (writer.attempts > 1) {
+                    log.warn("Isolated {} failing rows of chunk {} for job {} in {} batch attempts",
+                            errors.size(), event.getChunkNumber(), event.getJobId(), writer.attempts);
                 }
+                importErrorWriter.insert(errors);
+                if (!claim(event, rows, errors.size(), written)) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return written;
+            });
+            importMetrics.chunkWritten(event.getJobId(), System.nanoTime() - writeStart, writer.attempts);
+        } catch (RuntimeException e) {
+            importMetrics.chunkFailed(event.getJobId());
+            throw e;
+        }
+
+        if (result == null) {
+            log.info("Chunk {} for job {} was already processed or is stale, skipping", event.getChunkNumber(),
+                    event.getJobId());
+            return;
+        }
+
+        // Live progress is aggregated in memory; completion is decided by the chunk ledger
+        long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+        importProgressAggregator.record(event.getJobId(), result.inserted(), result.updated(), result.unchanged(),
+                errors.size(), rows, elapsedMicros);
+        importMetrics.chunkConsumed(event.getJobId(), rows, errors.size());
+        // Staged rows only go live with the swap, which clears the caches as a whole
+        if (event.getMode() != ImportJob.ImportMode.REPLACE && result.inserted() + result.updated() > 0) {
+            productCacheEvents.publishInvalidation(
+                    productsToSave.stream().map(Product::getInternalId).toList(),
+                    productsToSave.stream().map(Product::getEan).filter(Objects::nonNull).distinct().toList());
+        }
+        completeIfDone(event);
+    }
+
+    private void handleEndOfStream(ImportChunkEvent event) {
+        log.info("End of stream for job {}: {} chunks, {} rows", event.getJobId(), event.getExpectedChunks(),
+                event.getTotalRows());
+        if (importJobRepository.markEndOfStream(event.getJobId(), event.getAttempt(), event.getExpectedChunks(),
+                event.getTotalRows()) == 0) {
+            log.info("Ignoring end of stream from superseded attempt {} of job {}", event.getAttempt(), event.getJobId());
+            return;
+        }
+        completeIfDone(event);
+    }
+
+    private void completeIfDone(ImportChunkEvent event) {
+        String jobId = event.getJobId();
+        if (event.getMode() != ImportJob.ImportMode.REPLACE) {
+            if (importJobRepository.completeIfAllChunksDone(jobId) > 0) {
+                importErrorRepository.numberRows(jobId);
+                log.info("Import job {} completed", jobId);
+                productCacheEvents.publishImportCompleted(jobId, false);
             }
+            return;
         }
 
-        // Save Errors
-        if (!errors.isEmpty()) {
-            try {
-                importErrorRepository.saveAll(errors);
-            } catch (Exception e) {
-                log.error("Failed to save import errors for job {}", event.getJobId(), e);
+        // The job only turns COMPLETED together with the swap, and the swap happens exactly once
+        try {
+            Integer duplicates = transactionTemplate.execute(status -> {
+                if (importJobRepository.completeIfAllChunksDone(jobId) == 0) {
+                    return null;
+                }
+                importErrorRepository.numberRows(jobId);
+                // Stock goes live together with the catalog it belongs to; dropped products are
+                // found by comparing the new catalog with the one it replaces
+                inventoryStockWriter.retireReplaced(ProductStagingTable.tableName(jobId));
+                int dropped = productStagingTable.swapIn(jobId);
+                inventoryStockWriter.syncCatalog();
+                return dropped;
+            });
+            if (duplicates != null) {
+                log.info("Import job {} completed, catalog replaced ({} duplicate rows dropped)", jobId, duplicates);
+                productCacheEvents.publishImportCompleted(jobId, true);
             }
+        } catch (RuntimeException e) {
+            log.error("Failed to swap in the staging table of import job {}", jobId, e);
+            // The completing chunk may come from an earlier attempt than the job's current one
+            int attempt = importJobRepository.findById(jobId).map(ImportJob::getAttempt).orElse(event.getAttempt());
+            importJobRepository.markFailed(jobId, attempt, LocalDateTime.now());
+            productStagingTable.drop(jobId);
         }
+    }
+
+    private boolean claim(ImportChunkEvent event, int rows, int failed, ProductUpsertWriter.UpsertResult result) {
+        return importChunkRepository.claim(event.getJobId(), event.getAttempt(), event.getChunkNumber(),
+                event.getStartOffset(), event.getEndOffset(), rows, failed,
+                result.inserted(), result.updated(), result.unchanged()) > 0;
+    }
 
-        // Update Job Progress Atomically
-        // Update Job Progress Atomically
-        importJobRepository.updateProgress(event.getJobId(), successCount, errors.size());
+    private ProductUpsertWriter.UpsertResult writeBulk(List<Product> products, ImportChunkEvent event) {
+        if (products.isEmpty()) {
+            return new ProductUpsertWriter.UpsertResult(0, 0, 0);
+        }
+        ProductUpsertWriter.UpsertResult result = writeProducts(products, event);
+        // Stock becomes reservable with the chunk; a row the inventory rejects fails the same batch,
+        // so it is isolated together with its product. A replaced catalog is projected as a whole
+        // when it is swapped in.
+        if (event.getMode() != ImportJob.ImportMode.REPLACE) {
+            inventoryStockWriter.sync(products);
+        }
+        return result;
+    }
 
-        // Check for completion (this might still be racy for the status update, but
-        // better)
-        checkAndCompleteJob(event.getJobId());
+    private ProductUpsertWriter.UpsertResult writeProducts(List<Product> products, ImportChunkEvent event) {
+        if (event.getMode() == ImportJob.ImportMode.REPLACE) {
+            // Replays of a resumed attempt are deduplicated when the staging table is swapped in
+            return new ProductUpsertWriter.UpsertResult(productStagingTable.copy(event.getJobId(), products), 0, 0);
+        }
+        // A resumed attempt replays bytes an abandoned attempt may already have written, so it upserts
+        boolean delta = event.getMode() == ImportJob.ImportMode.DELTA || event.getAttempt() > 1;
+        if (!delta) {
+            return new ProductUpsertWriter.UpsertResult(productCopyWriter.copy(products), 0, 0);
+        }
+        ProductUpsertWriter.UpsertResult result = productUpsertWriter.upsert(products);
+        // In-chunk duplicates collapse to one row and count as unchanged
+        return new ProductUpsertWriter.UpsertResult(result.inserted(), result.updated(),
+                products.size() - result.inserted() - result.updated());
     }
 
-    private void checkAndCompleteJob(String jobId) {
-        ImportJob job = importJobRepository.findById(jobId).orElse(null);
-        if (job != null && job.getTotalRows() > 0 &&
-                (job.getProcessedRows() + job.getFailedRows() >= job.getTotalRows())) {
-
-            // Double check to avoid premature completion if totalRows is not yet set
-            // (though producer sets it at end)
-            // But here we rely on eventual consistency.
-            // A better approach would be a separate scheduled task or event when producer
-            // finishes.
-            // For now, we just check if we reached the total.
-
-            if (job.getStatus() != ImportJob.ImportStatus.COMPLETED) {
-                job.setStatus(ImportJob.ImportStatus.COMPLETED);
-                job.setEndTime(LocalDateTime.now());
-                importJobRepository.save(job);
+    private TransactionTemplate savepointTemplate() {
+        TransactionTemplate template = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        return template;
+    }
+
+    /**
+     * Writes a chunk inside the surrounding transaction, isolating rows the database rejects.
+     * A failing batch is rolled back to its savepoint and retried as two halves. Halving stops once
+     * a failing batch is small, or once most rows settled so far have failed; such a batch is
+     * written one row at a time. A single bad row in n thus costs one attempt for the chunk plus
+     * two per halving, about 1 + 2 * log2(n / max-batch) batch attempts, and then at most
+     * max-batch single-row writes. Every further bad row adds roughly as many again.
+     */
+    private final class BatchWriter {
+
+        private final ImportChunkEvent event;
+        private final TransactionTemplate savepoint;
+        private final List<Product> products;
+        private final List<Integer> productRows;
+        private final List<ImportError> errors;
+        private int attempts;
+        // Rows written or rejected so far, and how many of them were rejected
+        private int settledRows;
+        private int failedRows;
+
+        BatchWriter(ImportChunkEvent event, TransactionTemplate savepoint, List<Product> products,
+                List<Integer> productRows, List<ImportError> errors) {
+            this.event = event;
+            this.savepoint = savepoint;
+            this.products = products;
+            this.productRows = productRows;
+            this.errors = errors;
+        }
+
+        ProductUpsertWriter.UpsertResult write(int from, int to) {
+            if (from == to) {
+                return new ProductUpsertWriter.UpsertResult(0, 0, 0);
+            }
+            try {
+                ProductUpsertWriter.UpsertResult result = attempt(from, to);
+                settledRows += to - from;
+                return result;
+            } catch (DataAccessException e) {
+                rethrowIfTransient(e);
+                if (to - from == 1) {
+                    reject(from, e);
+                    return new ProductUpsertWriter.UpsertResult(0, 0, 0);
+                }
+                if (to - from <= rowByRowMaxBatch || denselyFailing()) {
+                    return writeRows(from, to);
+                }
+                int middle = (from + to) >>> 1;
+                return sum(write(from, middle), write(middle, to));
+            }
+        }
+
+        private ProductUpsertWriter.UpsertResult writeRows(int from, int to) {
+            ProductUpsertWriter.UpsertResult result = new ProductUpsertWriter.UpsertResult(0, 0, 0);
+            for (int i = from; i < to; i++) {
+                try {
+                    result = sum(result, attempt(i, i + 1));
+                    settledRows++;
+                } catch (DataAccessException e) {
+                    rethrowIfTransient(e);
+                    reject(i, e);
+                }
             }
+            return result;
+        }
+
+        private ProductUpsertWriter.UpsertResult attempt(int from, int to) {
+            attempts++;
+            return savepoint.execute(status -> writeBulk(products.subList(from, to), event));
         }
+
+        private void reject(int product, DataAccessException e) {
+            errors.add(error(event, productRows.get(product), mostSpecificMessage(e)));
+            settledRows++;
+            failedRows++;
+        }
+
+        private boolean denselyFailing() {
+            return settledRows >= rowByRowMaxBatch && failedRows > settledRows * rowByRowErrorRate;
+        }
+    }
+
+    private static void rethrowIfTransient(DataAccessException e) {
+        if (e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException) {
+            // Not caused by the rows; fail the chunk so it is redelivered
+            throw e;
+        }
+    }
+
+    private static ProductUpsertWriter.UpsertResult sum(ProductUpsertWriter.UpsertResult a,
+            ProductUpsertWriter.UpsertResult b) {
+        return new ProductUpsertWriter.UpsertResult(a.inserted() + b.inserted(), a.updated() + b.updated(),
+                a.unchanged() + b.unchanged());
+    }
+
+    private static ImportError error(ImportChunkEvent event, int index, String message) {
+        ProductDTO record = event.getProducts().get(index);
+        return ImportError.builder()
+                .jobId(event.getJobId())
+                .rowNumber(record.getRowNumber())
+                .chunkRow(index + 1)
+                .sourceOffset(record.getSourceOffset())
+                .errorMessage(truncate(message, 1000))
+                .build();
+    }
+
+    private static String mostSpecificMessage(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        return cause.getMessage() != null ? cause.getMessage() : e.getMessage();
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
     }
 
-    private Product mapToEntity(ProductDTO dto) {
-        return Product.builder()
+    // Package-private for the import benchmarks
+    static Product mapToEntity(ProductDTO dto) {
+        Product product = Product.builder()
                 .internalId(dto.getInternalId())
                 .name(dto.getName())
                 .description(dto.getDescription())
@@ -133,5 +370,7 @@ public class ImportConsumer {
                 .size(dto.getSize())
                 .availability(dto.getAvailability())
                 .build();
+        product.setContentHash(ProductFingerprint.of(product));
+        return product;
     }
 }
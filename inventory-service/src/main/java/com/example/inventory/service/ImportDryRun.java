@@ -0,0 +1,327 @@
+package com.example.inventory.service;
+
+import com.example.inventory.messaging.dto.ProductDTO;
+import com.example.inventory.service.csv.CsvRangeSplitter;
+import com.example.inventory.service.csv.ProductCsvParser;
+import com.example.inventory.service.csv.SourceRecordReader;
+import com.example.inventory.service.index.ProductIndex;
+import com.example.inventory.service.source.ImportSource;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates a product CSV without loading it: nothing is published and the database is not touched.
+ * <p>
+ * The file is split into record-aligned ranges that are parsed and checked in parallel, like a
+ * parallel import. Duplicate internal IDs are found afterwards from the 64-bit hashes each range
+ * collected, so the IDs themselves are never held in memory.
+ */
+@Service
+@Slf4j
+public class ImportDryRun {
+
+    private static final int SAMPLES_PER_CHECK = 10;
+    private static final int MAX_PRICE_SCALE = 2;
+    // products.price is numeric(19, 2)
+    private static final int MAX_PRICE_INTEGER_DIGITS = 17;
+
+    @Value("${product-import.dry-run.workers}")
+    private int configuredWorkers;
+
+    @Value("${product-import.parallel.max-range-bytes}")
+    private long maxRangeBytes;
+
+    public enum Check {
+        PARSE_ERROR, MISSING_INTERNAL_ID, MISSING_NAME, DUPLICATE_INTERNAL_ID, INVALID_PRICE, INVALID_EAN,
+        NEGATIVE_STOCK
+    }
+
+    public record Failure(long rowNumber, long sourceOffset, Check check, String message, String record) {
+    }
+
+    public record Report(String file, long rows, long validRows, long invalidRows, Map<Check, Long> errorCounts,
+            List<Failure> samples, int workers, int ranges, long elapsedMillis, long rowsPerSecond,
+            double megabytesPerSecond) {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file is not uncompressed CSV, which is all a dry run maps and splits
+     */
+    public Report validate(String filePath) throws IOException, InterruptedException {
+        if (!ImportSource.detect(Path.of(filePath)).plainCsv()) {
+            throw new IllegalArgumentException("Dry runs validate uncompressed CSV only: " + filePath);
+        }
+        long started = System.nanoTime();
+        int workerCount = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            long headerEnd = CsvRangeSplitter.findHeaderEnd(channel);
+            String[] header = readHeader(channel, headerEnd);
+
+            // A few ranges per worker, so an unlucky range does not hold up the others
+            long dataSize = channel.size() - headerEnd;
+            int rangeCount = (int) Math.max(workerCount * 4L, (dataSize + maxRangeBytes - 1) / maxRangeBytes);
+            List<CsvRangeSplitter.ByteRange> ranges = CsvRangeSplitter.split(channel, headerEnd, rangeCount, workers);
+
+            List<Callable<RangeValidation>> tasks = new ArrayList<>(ranges.size());
+            for (CsvRangeSplitter.ByteRange range : ranges) {
+                tasks.add(() -> validateRange(channel, range, header));
+            }
+            List<RangeValidation> results = new ArrayList<>(ranges.size());
+            for (Future<RangeValidation> future : workers.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+
+            long firstRow = 1;
+            for (RangeValidation result : results) {
+                result.firstRow = firstRow;
+                firstRow += result.rows;
+            }
+            findDuplicates(results);
+
+            long elapsedNanos = System.nanoTime() - started;
+            Report report = report(filePath, channel.size(), results, workerCount, ranges.size(), elapsedNanos);
+            log.info("Dry run of {}: {} rows, {} invalid, {} rows/s", filePath, report.rows(), report.invalidRows(),
+                    report.rowsPerSecond());
+            return report;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Dry run of " + filePath + " failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static String[] readHeader(FileChannel channel, long headerEnd) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd);
+        try (ProductCsvParser parser = new ProductCsvParser(new ByteBufferBackedInputStream(buffer), 0)) {
+            return parser.readHeader();
+        }
+    }
+
+    private static RangeValidation validateRange(FileChannel channel, CsvRangeSplitter.ByteRange range,
+            String[] header) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.length());
+        RangeValidation result = new RangeValidation();
+        try (ProductCsvParser parser = new ProductCsvParser(new ByteBufferBackedInputStream(buffer), range.start())) {
+            parser.useHeader(header);
+            while (parser.next()) {
+                int row = (int) result.rows++;
+                ProductDTO product;
+                try {
+                    product = parser.product();
+                } catch (RuntimeException e) {
+                    result.fail(row, parser.recordStart(), Check.PARSE_ERROR,
+                            e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                    continue;
+                }
+                validate(product, row, parser.recordStart(), result);
+            }
+        }
+        return result;
+    }
+
+    private static void validate(ProductDTO product, int row, long offset, RangeValidation result) {
+        if (isBlank(product.getInternalId())) {
+            result.fail(row, offset, Check.MISSING_INTERNAL_ID, "Internal ID is empty");
+        } else {
+            result.addInternalId(ProductIndex.hash(product.getInternalId()), offset, row);
+        }
+        if (isBlank(product.getName())) {
+            result.fail(row, offset, Check.MISSING_NAME, "Name is empty");
+        }
+
+        BigDecimal price = product.getPrice();
+        if (price != null) {
+            if (price.signum() < 0) {
+                result.fail(row, offset, Check.INVALID_PRICE, "Price " + price.toPlainString() + " is negative");
+            } else if (price.stripTrailingZeros().scale() > MAX_PRICE_SCALE) {
+                result.fail(row, offset, Check.INVALID_PRICE,
+                        "Price " + price.toPlainString() + " has more than " + MAX_PRICE_SCALE + " decimals");
+            } else if (price.precision() - price.scale() > MAX_PRICE_INTEGER_DIGITS) {
+                result.fail(row, offset, Check.INVALID_PRICE, "Price " + price.toPlainString() + " is too large");
+            }
+        }
+
+        String ean = product.getEan();
+        if (ean != null && !ean.isEmpty() && !isValidEan(ean)) {
+            result.fail(row, offset, Check.INVALID_EAN, "EAN \"" + ean + "\" is not a valid EAN-8, UPC-A, EAN-13 or GTIN-14");
+        }
+
+        if (product.getStock() != null && product.getStock() < 0) {
+            result.fail(row, offset, Check.NEGATIVE_STOCK, "Stock " + product.getStock() + " is negative");
+        }
+    }
+
+    /**
+     * GS1 check digit: digits are weighted 3 and 1 alternately from the right, excluding the check digit.
+     */
+    static boolean isValidEan(String ean) {
+        int length = ean.length();
+        if (length != 8 && length != 12 && length != 13 && length != 14) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            char c = ean.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            if (i < length - 1) {
+                sum += (c - '0') * ((length - 1 - i) % 2 == 1 ? 3 : 1);
+            }
+        }
+        return (10 - sum % 10) % 10 == ean.charAt(length - 1) - '0';
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Sorts all hashes once to find the duplicated ones, then walks the ranges in row order so the
+     * first occurrence of an ID counts as valid and every later one as a duplicate.
+     */
+    private static void findDuplicates(List<RangeValidation> results) {
+        int total = 0;
+        for (RangeValidation result : results) {
+            total += result.ids;
+        }
+        long[] hashes = new long[total];
+        int position = 0;
+        for (RangeValidation result : results) {
+            System.arraycopy(result.idHashes, 0, hashes, position, result.ids);
+            position += result.ids;
+        }
+        Arrays.parallelSort(hashes);
+        Set<Long> duplicated = new HashSet<>();
+        for (int i = 1; i < total; i++) {
+            if (hashes[i] == hashes[i - 1]) {
+                duplicated.add(hashes[i]);
+            }
+        }
+        if (duplicated.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> firstRows = new HashMap<>();
+        for (RangeValidation result : results) {
+            for (int i = 0; i < result.ids; i++) {
+                long hash = result.idHashes[i];
+                if (!duplicated.contains(hash)) {
+                    continue;
+                }
+                int row = result.idRows[i];
+                Long firstRow = firstRows.putIfAbsent(hash, result.firstRow + row);
+                if (firstRow != null) {
+                    result.fail(row, result.idOffsets[i], Check.DUPLICATE_INTERNAL_ID,
+                            "Internal ID already used in row " + firstRow);
+                }
+            }
+        }
+    }
+
+    private static Report report(String filePath, long fileSize, List<RangeValidation> results, int workers,
+            int ranges, long elapsedNanos) throws IOException {
+        long rows = 0;
+        long invalidRows = 0;
+        Map<Check, Long> errorCounts = new EnumMap<>(Check.class);
+        List<Failure> candidates = new ArrayList<>();
+        for (RangeValidation result : results) {
+            rows += result.rows;
+            invalidRows += result.invalid.cardinality();
+            for (Check check : Check.values()) {
+                if (result.counts[check.ordinal()] > 0) {
+                    errorCounts.merge(check, result.counts[check.ordinal()], Long::sum);
+                }
+            }
+            for (RangeValidation.Sample sample : result.samples) {
+                candidates.add(new Failure(result.firstRow + sample.row(), sample.offset(), sample.check(),
+                        sample.message(), null));
+            }
+        }
+
+        // The earliest failures of each check, with their records read back from the file
+        candidates.sort(Comparator.comparing(Failure::check).thenComparingLong(Failure::rowNumber));
+        List<Failure> samples = new ArrayList<>();
+        int[] taken = new int[Check.values().length];
+        try (SourceRecordReader source = new SourceRecordReader(Path.of(filePath))) {
+            for (Failure failure : candidates) {
+                if (taken[failure.check().ordinal()]++ < SAMPLES_PER_CHECK) {
+                    samples.add(new Failure(failure.rowNumber(), failure.sourceOffset(), failure.check(),
+                            failure.message(), source.read(failure.sourceOffset())));
+                }
+            }
+        }
+
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        return new Report(filePath, rows, rows - invalidRows, invalidRows, errorCounts, samples, workers, ranges,
+                elapsedNanos / 1_000_000, (long) (rows / seconds), Math.round(fileSize / seconds / 1e4) / 100.0);
+    }
+
+    /**
+     * What one range found. Rows are numbered from 0 within the range until the ranges' first rows
+     * are known.
+     */
+    private static final class RangeValidation {
+
+        private record Sample(int row, long offset, Check check, String message) {
+        }
+
+        private long rows;
+        private long firstRow;
+        private final BitSet invalid = new BitSet();
+        private final long[] counts = new long[Check.values().length];
+        private final List<Sample> samples = new ArrayList<>();
+
+        private long[] idHashes = new long[1024];
+        private long[] idOffsets = new long[1024];
+        private int[] idRows = new int[1024];
+        private int ids;
+
+        void fail(int row, long offset, Check check, String message) {
+            invalid.set(row);
+            // Ranges keep their own earliest samples; the report picks the earliest overall
+            if (counts[check.ordinal()]++ < SAMPLES_PER_CHECK) {
+                samples.add(new Sample(row, offset, check, message));
+            }
+        }
+
+        void addInternalId(long hash, long offset, int row) {
+            if (ids == idHashes.length) {
+                idHashes = Arrays.copyOf(idHashes, ids * 2);
+                idOffsets = Arrays.copyOf(idOffsets, ids * 2);
+                idRows = Arrays.copyOf(idRows, ids * 2);
+            }
+            idHashes[ids] = hash;
+            idOffsets[ids] = offset;
+            idRows[ids++] = row;
+        }
+    }
+}
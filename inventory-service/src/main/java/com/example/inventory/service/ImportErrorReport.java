@@ -0,0 +1,171 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.ImportChunk;
+import com.example.inventory.entity.ImportError;
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.repository.ImportChunkRepository;
+import com.example.inventory.repository.ImportErrorRepository;
+import com.example.inventory.service.csv.CsvRangeSplitter;
+import com.example.inventory.service.csv.SourceRecordReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Streams the errors of an import job as a CSV or NDJSON report.
+ * <p>
+ * Errors are read in keyset pages, so the report never holds more than one page in memory.
+ * Failing records are pulled back out of the source file by their byte offset; streamed
+ * uploads leave no file behind, and their records are reported empty.
+ * <p>
+ * Rows of ranges parsed in parallel are only numbered once their job completes. Until then the
+ * report numbers them from the finished chunks in the ledger, as far as those run without a gap
+ * from the first data row; rows after a gap are reported without a number.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportErrorReport {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final ImportErrorRepository importErrorRepository;
+    private final ImportChunkRepository importChunkRepository;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public void write(ImportJob job, Format format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        NavigableMap<Long, FinishedChunk> finishedChunks = finishedChunks(job);
+        try (SourceRecordReader source = openSource(job)) {
+            if (format == Format.CSV) {
+                writer.write("row_number,source_offset,error_message,record\n");
+            }
+            long afterId = 0;
+            List<ImportError> page;
+            do {
+                page = importErrorRepository.findByJobIdAndIdGreaterThanOrderByIdAsc(job.getId(), afterId,
+                        PageRequest.ofSize(PAGE_SIZE));
+                for (ImportError error : page) {
+                    String record = record(source, error);
+                    Long rowNumber = rowNumber(finishedChunks, error);
+                    if (format == Format.CSV) {
+                        writer.write(String.valueOf(nullToEmpty(rowNumber)));
+                        writer.write(',');
+                        writer.write(String.valueOf(nullToEmpty(error.getSourceOffset())));
+                        writer.write(',');
+                        writer.write(csvField(error.getErrorMessage()));
+                        writer.write(',');
+                        writer.write(csvField(record));
+                        writer.write('\n');
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(new ErrorLine(rowNumber,
+                                error.getSourceOffset(), error.getErrorMessage(), record)));
+                        writer.write('\n');
+                    }
+                    afterId = error.getId();
+                }
+            } while (page.size() == PAGE_SIZE);
+        }
+        writer.flush();
+    }
+
+    private SourceRecordReader openSource(ImportJob job) {
+        if (job.getSourcePath() == null || !Files.isReadable(Path.of(job.getSourcePath()))) {
+            return null;
+        }
+        try {
+            return new SourceRecordReader(Path.of(job.getSourcePath()));
+        } catch (IOException e) {
+            log.warn("Cannot open source {} of import job {}, reporting errors without records",
+                    job.getSourcePath(), job.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return finished chunks of a parallel job keyed by start offset, up to the first gap in the ledger
+     */
+    private NavigableMap<Long, FinishedChunk> finishedChunks(ImportJob job) throws IOException {
+        NavigableMap<Long, FinishedChunk> chunks = new TreeMap<>();
+        if (!Boolean.TRUE.equals(job.getParallel()) || job.getSourcePath() == null
+                || !Files.isReadable(Path.of(job.getSourcePath()))) {
+            return chunks;
+        }
+        long next;
+        try (FileChannel channel = FileChannel.open(Path.of(job.getSourcePath()), StandardOpenOption.READ)) {
+            next = CsvRangeSplitter.findHeaderEnd(channel);
+        }
+        long rows = 0;
+        for (ImportChunk chunk : importChunkRepository.findByJobIdOrderByStartOffsetAsc(job.getId())) {
+            if (chunk.getStartOffset() != next) {
+                break;
+            }
+            chunks.put(chunk.getStartOffset(), new FinishedChunk(chunk.getEndOffset(), rows));
+            rows += chunk.getRowCount() == null ? 0 : chunk.getRowCount();
+            next = chunk.getEndOffset();
+        }
+        return chunks;
+    }
+
+    private static Long rowNumber(NavigableMap<Long, FinishedChunk> finishedChunks, ImportError error) {
+        if (error.getRowNumber() != null || error.getChunkRow() == null) {
+            return error.getRowNumber();
+        }
+        Map.Entry<Long, FinishedChunk> chunk = finishedChunks.floorEntry(error.getSourceOffset());
+        if (chunk == null || error.getSourceOffset() >= chunk.getValue().endOffset()) {
+            return null;
+        }
+        return chunk.getValue().rowsBefore() + error.getChunkRow();
+    }
+
+    private static String record(SourceRecordReader source, ImportError error) throws IOException {
+        if (error.getSourceOffset() == null || source == null) {
+            // Errors recorded before offsets were tracked kept a copy of the row
+            return error.getRowData();
+        }
+        return source.read(error.getSourceOffset());
+    }
+
+    private static Object nullToEmpty(Long value) {
+        return value == null ? "" : value;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    private record FinishedChunk(long endOffset, long rowsBefore) {
+    }
+
+    private record ErrorLine(Long rowNumber, Long sourceOffset, String errorMessage, String record) {
+    }
+}
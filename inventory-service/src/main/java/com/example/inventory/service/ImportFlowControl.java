@@ -0,0 +1,204 @@
+package com.example.inventory.service;
+
+import com.example.inventory.repository.ImportChunkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps import producers from outrunning the consumers.
+ * <p>
+ * Two limits apply: each job may have only a bounded number of chunks awaiting a publisher
+ * confirm, and all producers pause when the product-import queue reaches the high watermark,
+ * resuming once consumers have drained it to the low watermark. Between broker polls the queue
+ * depth is estimated from the last poll plus the chunks published since, so the watermark holds
+ * even when many chunks are published within one poll interval.
+ * <p>
+ * Jobs publishing at the same time share the queue fairly: each may have at most the high
+ * watermark divided by the number of publishing jobs in the queue, where a job's queued chunks
+ * are those it published that are not yet in the chunk ledger. Without it the first job fills the queue and
+ * later jobs wait behind all of its chunks.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImportFlowControl {
+
+    private final AmqpAdmin amqpAdmin;
+    private final ImportChunkRepository importChunkRepository;
+
+    @Value("${rabbitmq.queues.product-import}")
+    private String productImportQueue;
+
+    @Value("${product-import.flow-control.max-in-flight}")
+    private int maxInFlight;
+
+    @Value("${product-import.flow-control.queue-high-watermark}")
+    private long highWatermark;
+
+    @Value("${product-import.flow-control.queue-low-watermark}")
+    private long lowWatermark;
+
+    @Value("${product-import.flow-control.poll-interval-ms}")
+    private long pollIntervalMs;
+
+    @Value("${product-import.flow-control.confirm-timeout-ms}")
+    private long confirmTimeoutMs;
+
+    private final AtomicLong estimatedDepth = new AtomicLong();
+
+    // Open windows, one per job publishing in this instance
+    private final Set<PublishWindow> windows = ConcurrentHashMap.newKeySet();
+
+    public PublishWindow newWindow(String jobId) {
+        PublishWindow window = new PublishWindow(jobId, maxInFlight, confirmTimeoutMs);
+        windows.add(window);
+        return window;
+    }
+
+    /**
+     * Stops counting the window's job toward the fair share of the others.
+     */
+    public void closeWindow(PublishWindow window) {
+        windows.remove(window);
+    }
+
+    /**
+     * Blocks while the job has its full share of the queue. The ledger is polled at most once
+     * per poll interval.
+     *
+     * @param publishedChunks chunks the job has published so far, including earlier attempts
+     * @param stopped         ends the wait early, for example when the job is cancelled
+     */
+    public void awaitFairShare(PublishWindow window, long publishedChunks, BooleanSupplier stopped)
+            throws InterruptedException {
+        while (!stopped.getAsBoolean()) {
+            long share = Math.max(1, highWatermark / Math.max(1, windows.size()));
+            if (publishedChunks - window.consumedChunks < share) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - window.consumedPolledAt >= TimeUnit.MILLISECONDS.toNanos(pollIntervalMs)) {
+                window.consumedChunks = importChunkRepository.countByJobId(window.jobId);
+                window.consumedPolledAt = now;
+                continue;
+            }
+            TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+        }
+    }
+
+    /**
+     * Blocks while the product-import queue is at or above the high watermark.
+     *
+     * @param stopped ends the wait early, for example when the job is cancelled
+     */
+    public void awaitQueueCapacity(BooleanSupplier stopped) throws InterruptedException {
+        if (estimatedDepth.incrementAndGet() < highWatermark) {
+            return;
+        }
+
+        long depth = pollDepth();
+        if (depth < highWatermark) {
+            return;
+        }
+
+        log.info("Product import queue depth {} reached high watermark {}, pausing producers", depth, highWatermark);
+        while (depth > lowWatermark) {
+            if (stopped.getAsBoolean()) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+            depth = pollDepth();
+        }
+        log.info("Product import queue drained to {}, resuming producers", depth);
+    }
+
+    private long pollDepth() {
+        QueueInformation info = amqpAdmin.getQueueInfo(productImportQueue);
+        long depth = info == null ? 0 : info.getMessageCount();
+        estimatedDepth.set(depth);
+        return depth;
+    }
+
+    /**
+     * Bounded window of chunks published for one job and not yet confirmed by the broker.
+     */
+    public static class PublishWindow {
+
+        private final String jobId;
+        private final int size;
+        private final long confirmTimeoutMs;
+        private final Semaphore permits;
+        private final AtomicLong nacked = new AtomicLong();
+        // Chunks of the job in the ledger as of the last poll
+        private volatile long consumedChunks;
+        private volatile long consumedPolledAt = System.nanoTime() - Long.MAX_VALUE / 2;
+
+        PublishWindow(String jobId, int size, long confirmTimeoutMs) {
+            this.jobId = jobId;
+            this.size = size;
+            this.confirmTimeoutMs = confirmTimeoutMs;
+            this.permits = new Semaphore(size);
+        }
+
+        /**
+         * Waits for a free slot and returns correlation data that frees it once the broker confirms.
+         */
+        public CorrelationData acquire(String id) throws InterruptedException {
+            return acquire(id, () -> {
+            });
+        }
+
+        /**
+         * Like {@link #acquire(String)}, additionally running {@code onAck} when the broker acks the message.
+         */
+        public CorrelationData acquire(String id, Runnable onAck) throws InterruptedException {
+            permits.acquire();
+            CorrelationData correlation = new CorrelationData(id);
+            correlation.getFuture().whenComplete((confirm, error) -> {
+                if (error != null || !confirm.isAck()) {
+                    nacked.incrementAndGet();
+                    log.error("Broker did not confirm {} for job {}: {}", id, jobId,
+                            error != null ? error.getMessage() : confirm.getReason());
+                } else {
+                    onAck.run();
+                }
+                permits.release();
+            });
+            return correlation;
+        }
+
+        /**
+         * Frees a slot whose message was never handed to the broker.
+         */
+        public void release() {
+            permits.release();
+        }
+
+        /**
+         * Waits until every published chunk is confirmed.
+         *
+         * @throws IllegalStateException if any chunk was nacked or confirms timed out
+         */
+        public void awaitConfirms() throws InterruptedException {
+            if (!permits.tryAcquire(size, confirmTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out waiting for publisher confirms for job " + jobId);
+            }
+            permits.release(size);
+            if (nacked.get() > 0) {
+                throw new IllegalStateException(nacked.get() + " chunks were not confirmed by the broker for job " + jobId);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.repository.ImportJobRepository;
+import com.example.inventory.repository.ProductStagingTable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pauses, unpauses and cancels import jobs.
+ * <p>
+ * The job row is the source of truth; the scheduler and producer of this instance are told
+ * right away, other instances notice on their next heartbeat. Pausing only holds the producer
+ * back; chunks already queued are still consumed. Cancelling stops the producer, and consumers
+ * drop the job's remaining chunks without writing them. Rows written before the cancel stay.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportJobControl {
+
+    // How long cancelled jobs are remembered for dropping their leftover chunks
+    private static final long CANCELLED_RETENTION_HOURS = 24;
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportScheduler importScheduler;
+    private final ImportProducer importProducer;
+    private final ProductStagingTable productStagingTable;
+
+    private final Set<String> cancelledJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return false if the job is unknown, already paused or no longer running
+     */
+    public boolean pause(String jobId) {
+        if (importJobRepository.setPaused(jobId, true) == 0) {
+            return false;
+        }
+        importScheduler.setPaused(jobId, true);
+        importProducer.setPaused(jobId, true);
+        log.info("Paused import job {}", jobId);
+        return true;
+    }
+
+    /**
+     * @return false if the job is unknown, not paused or no longer running
+     */
+    public boolean unpause(String jobId) {
+        if (importJobRepository.setPaused(jobId, false) == 0) {
+            return false;
+        }
+        importScheduler.setPaused(jobId, false);
+        importProducer.setPaused(jobId, false);
+        log.info("Unpaused import job {}", jobId);
+        return true;
+    }
+
+    /**
+     * @return false if the job is unknown or already finished
+     */
+    public boolean cancel(String jobId) {
+        if (importJobRepository.cancel(jobId, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        cancelledJobs.add(jobId);
+        importScheduler.remove(jobId);
+        importProducer.cancel(jobId);
+        log.info("Cancelled import job {}", jobId);
+
+        importJobRepository.findById(jobId)
+                .filter(job -> job.getMode() == ImportJob.ImportMode.REPLACE)
+                .ifPresent(job -> productStagingTable.drop(jobId));
+        return true;
+    }
+
+    /**
+     * Cheap check for consumers; may miss a cancel made elsewhere until the next refresh, which
+     * the chunk ledger then catches.
+     */
+    public boolean isCancelled(String jobId) {
+        return cancelledJobs.contains(jobId);
+    }
+
+    @Scheduled(fixedDelayString = "${product-import.checkpoint.interval-ms}")
+    public void refreshCancelled() {
+        List<String> cancelled = importJobRepository.findCancelledSince(
+                LocalDateTime.now().minusHours(CANCELLED_RETENTION_HOURS));
+        cancelledJobs.addAll(cancelled);
+        cancelledJobs.retainAll(Set.copyOf(cancelled));
+    }
+}
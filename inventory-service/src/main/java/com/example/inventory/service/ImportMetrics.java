@@ -0,0 +1,186 @@
+package com.example.inventory.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for each stage of the import pipeline, tagged by job, so a running import
+ * shows which stage holds it back: producer parse time and rows, time blocked on flow control,
+ * broker send and confirm latency, queue wait, consumer mapping and database write time, batch
+ * write fallbacks, and failed rows and chunks.
+ * <p>
+ * Queue wait compares the producer's publish timestamp with the consumer's clock, so it is only
+ * as accurate as the hosts' clock sync. Job tags are unbounded, so a job's meters are removed
+ * once it has been idle for the retention period.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImportMetrics {
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(5);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${product-import.metrics.job-retention-ms}")
+    private long jobRetentionMs;
+
+    private final Map<String, JobMeters> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Records a chunk the producer finished parsing.
+     */
+    public void chunkParsed(String jobId, int rows, int parseErrors, long elapsedNanos) {
+        JobMeters meters = meters(jobId);
+        meters.parse.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meters.parsedRows.increment(rows);
+        if (parseErrors > 0) {
+            meters.parseErrors.increment(parseErrors);
+        }
+    }
+
+    public void publishBlocked(String jobId, long elapsedNanos) {
+        meters(jobId).publishBlocked.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a send that started at {@code sendStartNanos}, and its confirm latency once the broker acks.
+     */
+    public void published(String jobId, long sendStartNanos, CorrelationData correlation) {
+        JobMeters meters = meters(jobId);
+        meters.publishSend.record(System.nanoTime() - sendStartNanos, TimeUnit.NANOSECONDS);
+        correlation.getFuture().thenAccept(confirm -> {
+            if (confirm.isAck()) {
+                meters.publishConfirm.record(System.nanoTime() - sendStartNanos, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    /**
+     * @param publishedAt epoch millis at which the producer published the chunk
+     */
+    public void chunkReceived(String jobId, long publishedAt) {
+        meters(jobId).queueWait.record(Math.max(0, System.currentTimeMillis() - publishedAt), TimeUnit.MILLISECONDS);
+    }
+
+    public void chunkMapped(String jobId, long elapsedNanos) {
+        meters(jobId).map.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param batchAttempts batch writes the chunk took; more than one means it fell back to splitting
+     */
+    public void chunkWritten(String jobId, long elapsedNanos, int batchAttempts) {
+        JobMeters meters = meters(jobId);
+        meters.write.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (batchAttempts > 1) {
+            meters.writeFallbacks.increment();
+        }
+    }
+
+    public void chunkConsumed(String jobId, int rows, int failedRows) {
+        JobMeters meters = meters(jobId);
+        meters.consumedRows.increment(rows);
+        if (failedRows > 0) {
+            meters.failedRows.increment(failedRows);
+        }
+    }
+
+    public void chunkFailed(String jobId) {
+        meters(jobId).failedChunks.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${product-import.metrics.job-retention-ms}")
+    public void removeIdleJobs() {
+        long idleSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(jobRetentionMs);
+        jobs.forEach((jobId, meters) -> {
+            if (meters.lastUsed - idleSince < 0 && jobs.remove(jobId, meters)) {
+                meters.all.forEach(meterRegistry::remove);
+                log.debug("Removed metrics of idle import job {}", jobId);
+            }
+        });
+    }
+
+    private JobMeters meters(String jobId) {
+        JobMeters meters = jobs.computeIfAbsent(jobId, JobMeters::new);
+        meters.lastUsed = System.nanoTime();
+        return meters;
+    }
+
+    /**
+     * Meters of one job, looked up once instead of through the registry on every chunk.
+     */
+    private final class JobMeters {
+
+        private final List<Meter> all = new ArrayList<>();
+        private final String jobId;
+        private final Timer parse;
+        private final Counter parsedRows;
+        private final Counter parseErrors;
+        private final Timer publishBlocked;
+        private final Timer publishSend;
+        private final Timer publishConfirm;
+        private final Timer queueWait;
+        private final Timer map;
+        private final Timer write;
+        private final Counter writeFallbacks;
+        private final Counter consumedRows;
+        private final Counter failedRows;
+        private final Counter failedChunks;
+        private volatile long lastUsed = System.nanoTime();
+
+        JobMeters(String jobId) {
+            this.jobId = jobId;
+            parse = timer("import.parse", "Producer time spent parsing a chunk");
+            parsedRows = counter("import.parse.rows", "Rows parsed by the producer");
+            parseErrors = counter("import.parse.errors", "Rows the producer could not parse");
+            publishBlocked = timer("import.publish.blocked", "Producer wait on pauses, flow control and the confirm window");
+            publishSend = timer("import.publish.send", "Time to encode a chunk and hand it to the broker");
+            publishConfirm = timer("import.publish.confirm", "Time from send until the broker acks a chunk");
+            queueWait = timer("import.chunk.queue.wait", "Time from publish until a consumer picks the chunk up");
+            map = timer("import.chunk.map", "Consumer time mapping a chunk's rows to entities");
+            write = timer("import.chunk.write", "Consumer time writing a chunk to the database");
+            writeFallbacks = counter("import.write.fallbacks", "Chunks split into smaller batches to isolate rejected rows");
+            consumedRows = counter("import.rows.consumed", "Rows consumed");
+            failedRows = counter("import.rows.failed", "Rows rejected by parsing, mapping or the database");
+            failedChunks = counter("import.chunks.failed", "Chunks whose processing threw and will be redelivered");
+        }
+
+        private Timer timer(String name, String description) {
+            Timer timer = Timer.builder(name)
+                    .description(description)
+                    .tag("job", jobId)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_EXPECTED)
+                    .maximumExpectedValue(MAX_EXPECTED)
+                    .register(meterRegistry);
+            all.add(timer);
+            return timer;
+        }
+
+        private Counter counter(String name, String description) {
+            Counter counter = Counter.builder(name)
+                    .description(description)
+                    .tag("job", jobId)
+                    .register(meterRegistry);
+            all.add(counter);
+            return counter;
+        }
+    }
+}
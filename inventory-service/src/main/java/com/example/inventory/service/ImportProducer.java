@@ -1,25 +1,51 @@
 package com.example.inventory.service;
 
 import com.example.inventory.entity.ImportJob;
+import com.example.inventory.messaging.ImportChunkMessageConverter;
 import com.example.inventory.messaging.dto.ImportChunkEvent;
 import com.example.inventory.messaging.dto.ProductDTO;
 import com.example.inventory.repository.ImportJobRepository;
+import com.example.inventory.repository.ProductStagingTable;
+import com.example.inventory.service.csv.CsvRangeSplitter;
+import com.example.inventory.service.csv.ProductCsvParser;
+import com.example.inventory.service.source.ImportSource;
+import com.example.inventory.service.source.ProductRecordParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
@@ -27,7 +53,13 @@ import java.util.concurrent.CompletableFuture;
 public class ImportProducer {
 
     private final RabbitTemplate rabbitTemplate;
+    private final MessagePostProcessor messageCompressor;
     private final ImportJobRepository importJobRepository;
+    private final ImportChunkMessageConverter importChunkMessageConverter;
+    private final ImportFlowControl importFlowControl;
+    private final ProductStagingTable productStagingTable;
+    private final ImportScheduler importScheduler;
+    private final ImportMetrics importMetrics;
 
     @Value("${rabbitmq.exchanges.inventory}")
     private String inventoryExchange;
@@ -35,106 +67,608 @@ public class ImportProducer {
     @Value("${rabbitmq.routing-keys.product-import}")
     private String productImportRoutingKey;
 
-    private static final int CHUNK_SIZE = 1000; // Configurable chunk size
+    @Value("${product-import.parallel.workers}")
+    private int parallelWorkers;
+
+    @Value("${product-import.parallel.max-range-bytes}")
+    private long maxRangeBytes;
+
+    @Value("${product-import.chunk-size.initial}")
+    private int initialChunkSize;
+
+    @Value("${product-import.chunk-size.min}")
+    private int minChunkSize;
+
+    @Value("${product-import.chunk-size.max}")
+    private int maxChunkSize;
+
+    @Value("${product-import.chunk-size.target-latency-ms}")
+    private long targetChunkLatencyMs;
+
+    @Value("${product-import.chunk-size.max-message-bytes}")
+    private long maxMessageBytes;
+
+    @Value("${product-import.chunk-size.error-rate-threshold}")
+    private double errorRateThreshold;
+
+    @Value("${product-import.chunk-size.feedback-interval-ms}")
+    private long feedbackIntervalMs;
+
+    @Value("${product-import.flow-control.poll-interval-ms}")
+    private long pausePollIntervalMs;
+
+    // Runs whose producer lives in this instance, checkpointed on a schedule
+    private final Map<String, ImportRun> activeRuns = new ConcurrentHashMap<>();
 
     /**
      * Starts the CSV import process asynchronously.
      * Reads the file line-by-line and publishes chunks to RabbitMQ.
      */
     public String startImport(String filePath) {
+        return startImport(filePath, false, ImportJob.ImportMode.APPEND, ImportJob.ImportPriority.NORMAL);
+    }
+
+    /**
+     * Starts the CSV import process asynchronously.
+     * In parallel mode the file is memory-mapped and split into record-aligned byte ranges,
+     * each parsed and published by its own worker.
+     * In delta mode consumers upsert by internal ID and skip rows whose content is unchanged.
+     * In replace mode rows are loaded into a staging table that replaces the catalog on completion.
+     * The job waits in the scheduler's queue until a producer slot is free.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the scheduler's queue is full
+     */
+    public String startImport(String filePath, boolean parallel, ImportJob.ImportMode mode,
+            ImportJob.ImportPriority priority) {
+        ImportJob job = ImportJob.builder()
+                .status(ImportJob.ImportStatus.PENDING)
+                .mode(mode)
+                .priority(priority)
+                .paused(false)
+                .sourcePath(filePath)
+                .parallel(parallel)
+                .attempt(1)
+                .resumeOffsets(new Long[]{0L})
+                .checkpointOffset(0L)
+                .checkpointChunks(0)
+                .checkpointRows(0L)
+                .heartbeatAt(LocalDateTime.now())
+                .startTime(LocalDateTime.now())
+                .totalRows(0L)
+                .processedRows(0L)
+                .failedRows(0L)
+                .insertedRows(0L)
+                .updatedRows(0L)
+                .unchangedRows(0L)
+                .build();
+
+        ImportJob savedJob = importJobRepository.save(job);
+        prepareStaging(savedJob);
+        try {
+            importScheduler.submit(savedJob, () -> produce(savedJob));
+        } catch (RejectedExecutionException e) {
+            importJobRepository.markFailed(savedJob.getId(), savedJob.getAttempt(), LocalDateTime.now());
+            if (savedJob.getMode() == ImportJob.ImportMode.REPLACE) {
+                productStagingTable.drop(savedJob.getId());
+            }
+            throw e;
+        }
+        return savedJob.getId();
+    }
+
+    /**
+     * Imports CSV or NDJSON read straight from the given stream, such as an HTTP request body,
+     * publishing chunks as bytes arrive. Memory stays bounded by the chunk size whatever the input size.
+     * Gzip and zstd input is detected from its magic bytes and decompressed on its own thread.
+     * Unlike file imports this runs on the calling thread without waiting for the scheduler, as the
+     * client is already sending, and the job cannot be resumed since the input cannot be read again.
+     */
+    public String importStream(InputStream input, ImportSource.Format format, ImportJob.ImportMode mode) {
         ImportJob job = ImportJob.builder()
                 .status(ImportJob.ImportStatus.PROCESSING)
+                .mode(mode)
+                .priority(ImportJob.ImportPriority.NORMAL)
+                .paused(false)
+                .parallel(false)
+                .attempt(1)
+                .resumeOffsets(new Long[]{0L})
+                .checkpointOffset(0L)
+                .checkpointChunks(0)
+                .checkpointRows(0L)
+                .heartbeatAt(LocalDateTime.now())
                 .startTime(LocalDateTime.now())
                 .totalRows(0L)
                 .processedRows(0L)
                 .failedRows(0L)
+                .insertedRows(0L)
+                .updatedRows(0L)
+                .unchangedRows(0L)
                 .build();
 
         ImportJob savedJob = importJobRepository.save(job);
+        prepareStaging(savedJob);
+        ImportRun run = newRun(savedJob);
+        activeRuns.put(run.jobId, run);
+        log.info("Starting streamed {} processing for job: {}", format, run.jobId);
 
-        // Run streaming processing in a separate thread to return response immediately
-        CompletableFuture.runAsync(() -> processFile(filePath, savedJob.getId()));
+        try (InputStream decoded = ImportSource.decodePipelined(input, "import-decode-" + run.jobId);
+                ProductRecordParser parser = ImportSource.parser(format, decoded, 0, null)) {
+            // Offsets count decompressed bytes from the start of the stream, header included
+            long totalRows = processSegment(parser, 0, 1L, run);
+            finish(run, totalRows);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Streamed CSV processing interrupted for job: {}", run.jobId);
+            markFailed(run);
+        } catch (Exception e) {
+            if (!run.cancelled) {
+                log.error("Error processing streamed CSV for job: {}", run.jobId, e);
+            }
+            markFailed(run);
+        } finally {
+            endRun(run);
+        }
+        return run.jobId;
+    }
 
-        return savedJob.getId();
+    private void prepareStaging(ImportJob job) {
+        if (job.getMode() != ImportJob.ImportMode.REPLACE) {
+            return;
+        }
+        try {
+            productStagingTable.create(job.getId());
+        } catch (RuntimeException e) {
+            importJobRepository.markFailed(job.getId(), job.getAttempt(), LocalDateTime.now());
+            throw e;
+        }
     }
 
-    private void processFile(String filePath, String jobId) {
-        log.info("Starting CSV processing for job: {} from file: {}", jobId, filePath);
-        long totalRows = 0;
-        int chunkNumber = 0;
-        List<ProductDTO> currentChunk = new ArrayList<>(CHUNK_SIZE);
-
-        try (BufferedReader reader = new BufferedReader(new java.io.FileReader(filePath, StandardCharsets.UTF_8));
-                CSVParser csvParser = new CSVParser(reader,
-                        CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
-
-            for (CSVRecord record : csvParser) {
-                totalRows++;
-                try {
-                    ProductDTO product = parseRecord(record);
-                    currentChunk.add(product);
-
-                    if (currentChunk.size() >= CHUNK_SIZE) {
-                        publishChunk(jobId, chunkNumber++, currentChunk);
-                        currentChunk.clear();
-                    }
-                } catch (Exception e) {
-                    log.error("Error parsing row {}: {}", totalRows, e.getMessage());
-                    // Log error to DB (omitted for brevity in producer, handled in consumer usually
-                    // or separate error queue)
+    /**
+     * Queues a job accepted earlier: a resumed job, which continues from its checkpoint, or a
+     * queued job taken over from another instance. The caller must already have claimed it.
+     */
+    public void resumeImport(ImportJob job) {
+        importScheduler.requeue(job, () -> produce(job));
+    }
+
+    // Runs on a scheduler thread
+    private void produce(ImportJob job) {
+        ImportRun run = newRun(job);
+        activeRuns.put(run.jobId, run);
+        try {
+            if (Boolean.TRUE.equals(job.getParallel()) && isPlainCsv(job.getSourcePath())) {
+                processFileParallel(job.getSourcePath(), run);
+            } else {
+                processFile(job.getSourcePath(), run);
+            }
+        } finally {
+            endRun(run);
+        }
+    }
+
+    private void endRun(ImportRun run) {
+        activeRuns.remove(run.jobId, run);
+        importFlowControl.closeWindow(run.publishWindow);
+    }
+
+    /**
+     * Pauses or unpauses the job's producer if it runs in this instance. Producers elsewhere pick
+     * the change up on their next checkpoint.
+     */
+    public void setPaused(String jobId, boolean paused) {
+        ImportRun run = activeRuns.get(jobId);
+        if (run != null) {
+            run.paused = paused;
+        }
+    }
+
+    /**
+     * Stops the job's producer if it runs in this instance. Producers elsewhere stop on their next
+     * checkpoint, which no longer applies to the cancelled job.
+     */
+    public void cancel(String jobId) {
+        ImportRun run = activeRuns.get(jobId);
+        if (run != null) {
+            run.cancelled = true;
+        }
+    }
+
+    /**
+     * Persists the checkpoint of every run in this instance, which doubles as its heartbeat.
+     * A run whose attempt was superseded by a resume elsewhere, or whose job was cancelled, is told
+     * to stop; pauses made through other instances are picked up.
+     */
+    @Scheduled(fixedDelayString = "${product-import.checkpoint.interval-ms}")
+    public void checkpointActiveRuns() {
+        for (ImportRun run : activeRuns.values()) {
+            CheckpointTracker.Checkpoint checkpoint = run.checkpoints.snapshot();
+            try {
+                int updated = importJobRepository.checkpoint(run.jobId, run.attempt, checkpoint.offset(),
+                        checkpoint.chunks(), checkpoint.rows(), LocalDateTime.now());
+                if (updated == 0) {
+                    log.warn("Attempt {} of import job {} was superseded or cancelled, stopping its producer",
+                            run.attempt, run.jobId);
+                    run.superseded = true;
                 }
+            } catch (RuntimeException e) {
+                log.error("Failed to checkpoint import job {}", run.jobId, e);
             }
+        }
 
-            // Publish remaining rows
-            if (!currentChunk.isEmpty()) {
-                publishChunk(jobId, chunkNumber, currentChunk);
+        if (!activeRuns.isEmpty()) {
+            try {
+                Set<String> paused = new HashSet<>(importJobRepository.findPaused(activeRuns.keySet()));
+                activeRuns.values().forEach(run -> run.paused = paused.contains(run.jobId));
+            } catch (RuntimeException e) {
+                log.error("Failed to refresh paused import jobs", e);
             }
+        }
+    }
+
+    // Only uncompressed CSV can be split into byte ranges; other sources are read sequentially
+    private static boolean isPlainCsv(String filePath) {
+        try {
+            return ImportSource.detect(Path.of(filePath)).plainCsv();
+        } catch (IOException e) {
+            // Reported by the sequential read
+            return false;
+        }
+    }
 
-            // Update total rows
-            ImportJob job = importJobRepository.findById(jobId).orElseThrow();
-            job.setTotalRows(totalRows);
-            importJobRepository.save(job);
+    private void processFile(String filePath, ImportRun run) {
+        String jobId = run.jobId;
+        log.info("Starting CSV processing for job: {} from file: {} (attempt {})", jobId, filePath, run.attempt);
 
-            log.info("Finished publishing chunks for job: {}. Total rows: {}", jobId, totalRows);
+        try {
+            ImportSource.Type type = ImportSource.detect(Path.of(filePath));
+            long totalRows = type.plainCsv() ? processPlainFile(Path.of(filePath), run)
+                    : processDecodedFile(Path.of(filePath), type, run);
+            finish(run, totalRows);
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("CSV processing interrupted for job: {}", jobId);
+            markFailed(run);
         } catch (Exception e) {
-            log.error("Error processing CSV file for job: {}", jobId, e);
-            ImportJob job = importJobRepository.findById(jobId).orElse(null);
-            if (job != null) {
-                job.setStatus(ImportJob.ImportStatus.FAILED);
-                job.setEndTime(LocalDateTime.now());
-                importJobRepository.save(job);
+            if (!run.cancelled) {
+                log.error("Error processing CSV file for job: {}", jobId, e);
             }
+            markFailed(run);
         }
     }
 
-    private void publishChunk(String jobId, int chunkNumber, List<ProductDTO> products) {
+    private long processPlainFile(Path path, ImportRun run) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long headerEnd = CsvRangeSplitter.findHeaderEnd(channel);
+            String[] header = readHeader(channel, headerEnd);
+            run.checkpoints.skipTo(headerEnd);
+            long start = run.checkpoints.snapshot().offset();
+
+            channel.position(start);
+            try (ProductCsvParser parser = new ProductCsvParser(Channels.newInputStream(channel), start)) {
+                parser.useHeader(header);
+                return processSegment(parser, start, run.startRows + 1, run);
+            }
+        }
+    }
+
+    /**
+     * Reads a compressed or NDJSON source as a stream of decoded bytes, decompressing on a separate
+     * thread. Offsets count decoded bytes, so a resumed job decodes and skips everything before its
+     * checkpoint: compressed input cannot be entered mid-stream.
+     */
+    private long processDecodedFile(Path path, ImportSource.Type type, ImportRun run)
+            throws IOException, InterruptedException {
+        log.info("Decoding {} {} source for job: {}", type.compression(), type.format(), run.jobId);
+        String[] header = null;
+        long headerEnd = 0;
+        if (type.format() == ImportSource.Format.CSV) {
+            try (ProductCsvParser headerParser = new ProductCsvParser(ImportSource.open(path), 0)) {
+                header = headerParser.readHeader();
+                headerEnd = headerParser.offset();
+            }
+        }
+        run.checkpoints.skipTo(headerEnd);
+        long start = run.checkpoints.snapshot().offset();
+
+        try (InputStream decoded = ImportSource.decodePipelined(Files.newInputStream(path),
+                "import-decode-" + run.jobId)) {
+            decoded.skipNBytes(start);
+            try (ProductRecordParser parser = ImportSource.parser(type.format(), decoded, start, header)) {
+                return processSegment(parser, start, run.startRows + 1, run);
+            }
+        }
+    }
+
+    private void processFileParallel(String filePath, ImportRun run) {
+        String jobId = run.jobId;
+        log.info("Starting parallel CSV processing for job: {} from file: {} with {} workers (attempt {})",
+                jobId, filePath, parallelWorkers, run.attempt);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelWorkers);
+
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            long headerEnd = CsvRangeSplitter.findHeaderEnd(channel);
+            String[] header = readHeader(channel, headerEnd);
+            run.checkpoints.skipTo(headerEnd);
+            long start = run.checkpoints.snapshot().offset();
+
+            long dataSize = channel.size() - start;
+            int rangeCount = (int) Math.max(parallelWorkers, (dataSize + maxRangeBytes - 1) / maxRangeBytes);
+            List<CsvRangeSplitter.ByteRange> ranges = CsvRangeSplitter.split(channel, start, rangeCount, workers);
+
+            List<Callable<Long>> tasks = new ArrayList<>(ranges.size());
+            for (CsvRangeSplitter.ByteRange range : ranges) {
+                tasks.add(() -> processRange(channel, range, header, run));
+            }
+
+            long rows = 0;
+            for (Future<Long> future : workers.invokeAll(tasks)) {
+                rows += future.get();
+            }
+            finish(run, rows);
+
+            log.info("Published chunks from {} ranges for job: {}", ranges.size(), jobId);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Parallel CSV processing interrupted for job: {}", jobId);
+            markFailed(run);
+        } catch (ExecutionException e) {
+            if (!run.cancelled) {
+                log.error("Error processing CSV range for job: {}", jobId, e.getCause());
+            }
+            markFailed(run);
+        } catch (Exception e) {
+            if (!run.cancelled) {
+                log.error("Error processing CSV file for job: {}", jobId, e);
+            }
+            markFailed(run);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private long processRange(FileChannel channel, CsvRangeSplitter.ByteRange range, String[] header,
+            ImportRun run) throws IOException, InterruptedException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.length());
+        long rows;
+        try (ProductCsvParser parser = new ProductCsvParser(new ByteBufferBackedInputStream(buffer), range.start())) {
+            parser.useHeader(header);
+            // The rows before a range are only known from the ledger, which numbers them on completion
+            rows = processSegment(parser, range.start(), null, run);
+        }
+        log.debug("Finished range [{}, {}) for job {} with {} rows", range.start(), range.end(), run.jobId, rows);
+        return rows;
+    }
+
+    /**
+     * Parses the rest of the parser's input, which starts at {@code start} of the source, and
+     * publishes it in chunks that tile the segment exactly, so every chunk knows the byte range
+     * it covers. Records are numbered from {@code firstRow} on, or left unnumbered if it is null.
+     */
+    private long processSegment(ProductRecordParser parser, long start, Long firstRow, ImportRun run)
+            throws IOException, InterruptedException {
+        long rows = 0;
+        long chunkStart = start;
+        int chunkRows = 0;
+        int chunkErrors = 0;
+        long parseStart = System.nanoTime();
+        List<ProductDTO> currentChunk = new ArrayList<>(run.chunkSizer.chunkSize());
+
+        while (parser.next()) {
+            if (currentChunk.size() >= run.chunkSizer.chunkSize()) {
+                long recordStart = parser.recordStart();
+                importMetrics.chunkParsed(run.jobId, chunkRows, chunkErrors, System.nanoTime() - parseStart);
+                publishChunk(run, currentChunk, chunkStart, recordStart, chunkRows);
+                currentChunk.clear();
+                chunkStart = recordStart;
+                chunkRows = 0;
+                chunkErrors = 0;
+                parseStart = System.nanoTime();
+            }
+
+            chunkRows++;
+            Long rowNumber = firstRow == null ? null : firstRow + rows;
+            rows++;
+            ProductDTO product;
+            try {
+                product = parser.product();
+            } catch (Exception e) {
+                log.debug("Error parsing record at byte {}: {}", parser.recordStart(), e.getMessage());
+                chunkErrors++;
+                // Sent along with the chunk, so the consumer records it together with the chunk's other errors
+                product = ProductDTO.builder()
+                        .parseError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName())
+                        .build();
+            }
+            product.setRowNumber(rowNumber);
+            product.setSourceOffset(parser.recordStart());
+            currentChunk.add(product);
+        }
+
+        // Publish remaining rows; the end is only known once the input is exhausted
+        long segmentEnd = parser.offset();
+        if (chunkRows > 0) {
+            importMetrics.chunkParsed(run.jobId, chunkRows, chunkErrors, System.nanoTime() - parseStart);
+            publishChunk(run, currentChunk, chunkStart, segmentEnd, chunkRows);
+        } else if (chunkStart < segmentEnd) {
+            // Trailing bytes without records still advance the checkpoint
+            run.checkpoints.onConfirmed(chunkStart, segmentEnd, 0, 0);
+        }
+        return rows;
+    }
+
+    /**
+     * Waits for the last confirms and publishes the end-of-stream marker. Rows and chunks before the
+     * checkpoint this attempt started from were published by earlier attempts and count toward the totals.
+     */
+    private void finish(ImportRun run, long rows) throws InterruptedException {
+        run.publishWindow.awaitConfirms();
+        checkNotStopped(run);
+        long totalRows = run.startRows + rows;
+        publishEndOfStream(run, totalRows);
+        log.info("Finished publishing {} chunks for job: {}. Total rows: {}", run.chunkCounter.get(), run.jobId,
+                totalRows);
+    }
+
+    private String[] readHeader(FileChannel channel, long headerEnd) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd);
+        try (ProductCsvParser headerParser = new ProductCsvParser(new ByteBufferBackedInputStream(buffer), 0)) {
+            return headerParser.readHeader();
+        }
+    }
+
+    private void markFailed(ImportRun run) {
+        if (run.cancelled) {
+            log.info("Stopped the producer of cancelled import job {}", run.jobId);
+            return;
+        }
+        // A superseded attempt must not fail the job its successor is now running
+        importJobRepository.markFailed(run.jobId, run.attempt, LocalDateTime.now());
+    }
+
+    private void publishChunk(ImportRun run, List<ProductDTO> products, long startOffset, long endOffset,
+            int rows) throws InterruptedException {
+        long blockedStart = System.nanoTime();
+        awaitUnpaused(run);
+        importFlowControl.awaitFairShare(run.publishWindow, run.chunkCounter.get(), run::stopped);
+        checkNotStopped(run);
+
+        int chunkNumber = run.chunkCounter.getAndIncrement();
+
+        // Flow control: wait for queue capacity and a free slot in the job's confirm window
+        importFlowControl.awaitQueueCapacity(run::stopped);
+        checkNotStopped(run);
+        CorrelationData correlation = run.publishWindow.acquire(run.jobId + ":" + chunkNumber,
+                () -> run.checkpoints.onConfirmed(startOffset, endOffset, 1, rows));
+        long sendStart = System.nanoTime();
+        importMetrics.publishBlocked(run.jobId, sendStart - blockedStart);
+
+        // Stamped after the waits above, so consumers see only the time the chunk spent queued
         ImportChunkEvent event = ImportChunkEvent.builder()
-                .jobId(jobId)
+                .jobId(run.jobId)
                 .chunkNumber(chunkNumber)
-                .products(new ArrayList<>(products)) // Create copy
+                .mode(run.mode)
+                .attempt(run.attempt)
+                .publishedAt(System.currentTimeMillis())
+                .startOffset(startOffset)
+                .endOffset(endOffset)
+                .products(products) // Encoded synchronously, so the caller may reuse the list
                 .build();
+        Message message;
+        try {
+            message = importChunkMessageConverter.toMessage(event, new MessageProperties());
+            rabbitTemplate.send(inventoryExchange, productImportRoutingKey,
+                    messageCompressor.postProcessMessage(message), correlation);
+        } catch (RuntimeException e) {
+            run.publishWindow.release();
+            throw e;
+        }
+        importMetrics.published(run.jobId, sendStart, correlation);
+        log.debug("Published chunk {} for job {} with {} products", chunkNumber, run.jobId, products.size());
+
+        AdaptiveChunkSizer chunkSizer = run.chunkSizer;
+        chunkSizer.onPublished(products.size(), message.getBody().length);
+        if (chunkSizer.feedbackDue()) {
+            importJobRepository.findById(run.jobId)
+                    .ifPresent(job -> chunkSizer.onFeedback(job.getAvgRowMicros(), job.getErrorRate()));
+            log.debug("Chunk size for job {} is now {}", run.jobId, chunkSizer.chunkSize());
+        }
+    }
+
+    private void awaitUnpaused(ImportRun run) throws InterruptedException {
+        if (run.paused && !run.stopped()) {
+            log.info("Import job {} paused", run.jobId);
+            while (run.paused && !run.stopped()) {
+                TimeUnit.MILLISECONDS.sleep(pausePollIntervalMs);
+            }
+            log.info("Import job {} unpaused", run.jobId);
+        }
+    }
+
+    private static void checkNotStopped(ImportRun run) {
+        if (run.cancelled) {
+            throw new CancellationException("Import job " + run.jobId + " was cancelled");
+        }
+        if (run.superseded) {
+            throw new IllegalStateException("Attempt " + run.attempt + " of import job " + run.jobId + " was superseded");
+        }
+    }
 
-        rabbitTemplate.convertAndSend(inventoryExchange, productImportRoutingKey, event);
-        log.debug("Published chunk {} for job {} with {} products", chunkNumber, jobId, products.size());
-    }
-
-    private ProductDTO parseRecord(CSVRecord record) {
-        // Index, Name, Description, Brand, Category, Price, Currency, Stock, EAN,
-        // Color, Size, Availability, Internal ID
-        return ProductDTO.builder()
-                .internalId(record.get("Internal ID"))
-                .name(record.get("Name"))
-                .description(record.get("Description"))
-                .brand(record.get("Brand"))
-                .category(record.get("Category"))
-                .price(new BigDecimal(record.get("Price")))
-                .currency(record.get("Currency"))
-                .stock(Integer.parseInt(record.get("Stock")))
-                .ean(record.get("EAN"))
-                .color(record.get("Color"))
-                .size(record.get("Size"))
-                .availability(record.get("Availability"))
+    /**
+     * Publishes the marker that tells consumers how many chunks make up the job. It is sent only
+     * after every chunk is confirmed, so the expected count is final.
+     */
+    private void publishEndOfStream(ImportRun run, long totalRows) throws InterruptedException {
+        int expectedChunks = run.chunkCounter.get();
+        ImportChunkEvent marker = ImportChunkEvent.builder()
+                .jobId(run.jobId)
+                .chunkNumber(expectedChunks)
+                .mode(run.mode)
+                .attempt(run.attempt)
+                .publishedAt(System.currentTimeMillis())
+                .endOfStream(true)
+                .expectedChunks(expectedChunks)
+                .totalRows(totalRows)
                 .build();
+
+        Message message = importChunkMessageConverter.toMessage(marker, new MessageProperties());
+        CorrelationData correlation = run.publishWindow.acquire(run.jobId + ":end");
+        try {
+            rabbitTemplate.send(inventoryExchange, productImportRoutingKey,
+                    messageCompressor.postProcessMessage(message), correlation);
+        } catch (RuntimeException e) {
+            run.publishWindow.release();
+            throw e;
+        }
+        run.publishWindow.awaitConfirms();
+        log.debug("Published end-of-stream marker for job {} after {} chunks", run.jobId, expectedChunks);
+    }
+
+    private ImportRun newRun(ImportJob job) {
+        AdaptiveChunkSizer chunkSizer = new AdaptiveChunkSizer(initialChunkSize, minChunkSize, maxChunkSize,
+                targetChunkLatencyMs, maxMessageBytes, errorRateThreshold, feedbackIntervalMs);
+        CheckpointTracker checkpoints = new CheckpointTracker(job.getCheckpointOffset(), job.getCheckpointChunks(),
+                job.getCheckpointRows());
+        ImportRun run = new ImportRun(job.getId(), job.getAttempt(), job.getMode(), chunkSizer,
+                importFlowControl.newWindow(job.getId()), checkpoints);
+        run.paused = Boolean.TRUE.equals(job.getPaused());
+        return run;
+    }
+
+    /**
+     * Publishing state of one job attempt, shared by all of its workers.
+     */
+    private static class ImportRun {
+
+        private final String jobId;
+        private final int attempt;
+        private final ImportJob.ImportMode mode;
+        private final AdaptiveChunkSizer chunkSizer;
+        private final ImportFlowControl.PublishWindow publishWindow;
+        private final CheckpointTracker checkpoints;
+        private final long startRows;
+        // Numbering continues after the chunks of earlier attempts
+        private final AtomicInteger chunkCounter;
+        private volatile boolean superseded;
+        private volatile boolean cancelled;
+        private volatile boolean paused;
+
+        ImportRun(String jobId, int attempt, ImportJob.ImportMode mode, AdaptiveChunkSizer chunkSizer,
+                ImportFlowControl.PublishWindow publishWindow, CheckpointTracker checkpoints) {
+            this.jobId = jobId;
+            this.attempt = attempt;
+            this.mode = mode;
+            this.chunkSizer = chunkSizer;
+            this.publishWindow = publishWindow;
+            this.checkpoints = checkpoints;
+            CheckpointTracker.Checkpoint start = checkpoints.snapshot();
+            this.startRows = start.rows();
+            this.chunkCounter = new AtomicInteger(start.chunks());
+        }
+
+        boolean stopped() {
+            return superseded || cancelled;
+        }
     }
 }
@@ -0,0 +1,137 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.repository.ImportJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates import progress in memory and writes it to the job row in batches.
+ * <p>
+ * Consumers only add to per-job {@link LongAdder}s, so concurrent chunks never contend on the
+ * {@code import_jobs} row. Each job is flushed with one update per interval. These counts only
+ * feed the live progress view and chunk sizing; completion and final totals come from the chunk
+ * ledger, and flushes stop applying once a job has left the PROCESSING state.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImportProgressAggregator {
+
+    private final ImportJobRepository importJobRepository;
+
+    private final Map<String, JobProgress> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Records the outcome of one consumed chunk.
+     */
+    public void record(String jobId, long inserted, long updated, long unchanged, long failed,
+            long rows, long elapsedMicros) {
+        JobProgress progress = jobs.computeIfAbsent(jobId, id -> new JobProgress());
+        progress.inserted.add(inserted);
+        progress.updated.add(updated);
+        progress.unchanged.add(unchanged);
+        progress.failed.add(failed);
+        progress.rows.add(rows);
+        progress.elapsedMicros.add(elapsedMicros);
+    }
+
+    /**
+     * Returns a copy of the job with counts that are not yet flushed added on top.
+     */
+    public ImportJob withPending(ImportJob job) {
+        JobProgress progress = jobs.get(job.getId());
+        // Finished jobs carry their final ledger totals
+        if (progress == null || job.getStatus() != ImportJob.ImportStatus.PROCESSING) {
+            return job;
+        }
+        long inserted = progress.inserted.sum();
+        long updated = progress.updated.sum();
+        long unchanged = progress.unchanged.sum();
+        return job.toBuilder()
+                .processedRows(job.getProcessedRows() + inserted + updated + unchanged)
+                .failedRows(job.getFailedRows() + progress.failed.sum())
+                .insertedRows(nullToZero(job.getInsertedRows()) + inserted)
+                .updatedRows(nullToZero(job.getUpdatedRows()) + updated)
+                .unchangedRows(nullToZero(job.getUnchangedRows()) + unchanged)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${product-import.progress.flush-interval-ms}")
+    public void flushAll() {
+        jobs.forEach((jobId, progress) -> {
+            if (flush(jobId, progress) == 0) {
+                // Idle: retire the entry, re-flushing in case a chunk slipped in before removal
+                jobs.remove(jobId, progress);
+                flush(jobId, progress);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.forEach(this::flush);
+    }
+
+    /**
+     * Moves pending counts of one job to the database.
+     *
+     * @return number of rows flushed, or -1 if the flush failed and the counts were put back
+     */
+    private long flush(String jobId, JobProgress progress) {
+        synchronized (progress) {
+            // Subtract exactly what was read, so concurrent additions carry over to the next flush
+            long inserted = drain(progress.inserted);
+            long updated = drain(progress.updated);
+            long unchanged = drain(progress.unchanged);
+            long failed = drain(progress.failed);
+            long rows = drain(progress.rows);
+            long elapsedMicros = drain(progress.elapsedMicros);
+            if (rows == 0) {
+                return 0;
+            }
+
+            try {
+                importJobRepository.updateProgress(jobId, inserted + updated + unchanged, failed,
+                        inserted, updated, unchanged, (double) elapsedMicros / rows, (double) failed / rows);
+            } catch (RuntimeException e) {
+                log.error("Failed to flush progress for job {}, retrying on next flush", jobId, e);
+                progress.inserted.add(inserted);
+                progress.updated.add(updated);
+                progress.unchanged.add(unchanged);
+                progress.failed.add(failed);
+                progress.rows.add(rows);
+                progress.elapsedMicros.add(elapsedMicros);
+                return -1;
+            }
+            return rows;
+        }
+    }
+
+    private static long drain(LongAdder adder) {
+        long value = adder.sum();
+        adder.add(-value);
+        return value;
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static class JobProgress {
+
+        private final LongAdder inserted = new LongAdder();
+        private final LongAdder updated = new LongAdder();
+        private final LongAdder unchanged = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder elapsedMicros = new LongAdder();
+    }
+}
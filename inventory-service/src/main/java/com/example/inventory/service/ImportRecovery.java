@@ -0,0 +1,96 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.repository.ImportChunkRepository;
+import com.example.inventory.repository.ImportJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resumes imports whose producer stopped before publishing everything, for example because the
+ * pod restarted. A producer is considered gone once its heartbeat is older than the stale threshold.
+ * Streamed uploads cannot be read again and are failed instead. Jobs still waiting in the queue of
+ * a scheduler that went away are taken over and queued here.
+ * <p>
+ * A resume starts a new attempt from the job's checkpoint: ledger entries past the checkpoint
+ * are dropped, as their bytes are published again, and consumers discard chunks that the
+ * abandoned attempt published past that point.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportRecovery {
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportChunkRepository importChunkRepository;
+    private final ImportProducer importProducer;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${product-import.checkpoint.stale-after-ms}")
+    private long staleAfterMs;
+
+    /**
+     * Resumes the job from its checkpoint.
+     *
+     * @return false if the job does not exist, has finished publishing, or its producer is still alive
+     */
+    public boolean resume(String jobId) {
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getAttempt() == null) {
+            return false;
+        }
+
+        LocalDateTime staleBefore = LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000);
+        Boolean claimed = transactionTemplate.execute(status -> {
+            if (importJobRepository.claimResume(jobId, job.getAttempt(), staleBefore) == 0) {
+                return false;
+            }
+            importChunkRepository.deleteBeyondCheckpoint(jobId);
+            importJobRepository.resetProgressFromLedger(jobId);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(claimed)) {
+            return false;
+        }
+
+        ImportJob resumed = importJobRepository.findById(jobId).orElseThrow();
+        log.info("Resuming import job {} as attempt {} from byte {} after {} chunks", jobId, resumed.getAttempt(),
+                resumed.getCheckpointOffset(), resumed.getCheckpointChunks());
+        importProducer.resumeImport(resumed);
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${product-import.checkpoint.recovery-interval-ms}",
+            initialDelayString = "${product-import.checkpoint.recovery-interval-ms}")
+    public void recoverStalledJobs() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000);
+        for (ImportJob job : importJobRepository.findStalledQueued(staleBefore)) {
+            if (importJobRepository.claimQueued(job.getId(), staleBefore, LocalDateTime.now()) > 0) {
+                log.info("Taking over queued import job {}", job.getId());
+                importProducer.resumeImport(job);
+            }
+        }
+
+        for (ImportJob job : importJobRepository.findStalled(staleBefore)) {
+            try {
+                resume(job.getId());
+            } catch (RuntimeException e) {
+                log.error("Failed to resume import job {}", job.getId(), e);
+            }
+        }
+
+        int failed = importJobRepository.failStalledStreams(staleBefore, LocalDateTime.now());
+        if (failed > 0) {
+            log.warn("Marked {} streamed import jobs as failed after their producer stopped", failed);
+        }
+    }
+}
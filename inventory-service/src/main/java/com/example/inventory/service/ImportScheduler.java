@@ -0,0 +1,212 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.repository.ImportJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs import producers on a dedicated pool with a bounded number of concurrent jobs.
+ * <p>
+ * Jobs beyond the limit wait in a bounded queue ordered by priority, then submission order.
+ * Waiting jobs stay PENDING and are kept alive by heartbeats, so another instance can take them
+ * over if this one goes away. Paused jobs keep their place but are skipped until unpaused.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportScheduler {
+
+    private final ImportJobRepository importJobRepository;
+
+    @Value("${product-import.scheduler.max-concurrent}")
+    private int maxConcurrent;
+
+    @Value("${product-import.scheduler.queue-capacity}")
+    private int queueCapacity;
+
+    private final PriorityQueue<QueuedJob> queue = new PriorityQueue<>(
+            Comparator.comparing(QueuedJob::priority).thenComparingLong(QueuedJob::sequence));
+    private final Map<String, QueuedJob> queued = new HashMap<>();
+    private final Set<String> paused = new HashSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int running;
+
+    private ExecutorService producers;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        producers = Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "import-producer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        producers.shutdownNow();
+    }
+
+    /**
+     * Queues a new job. It is moved from PENDING to PROCESSING when a producer slot frees up.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public synchronized void submit(ImportJob job, Runnable producer) {
+        if (queued.size() >= queueCapacity) {
+            throw new RejectedExecutionException("Import queue is full (" + queueCapacity + " jobs)");
+        }
+        enqueue(job, false, producer);
+    }
+
+    /**
+     * Queues a job that was accepted earlier: a resumed job, which is already PROCESSING, or a
+     * PENDING job taken over from another instance. Not bounded by the queue capacity.
+     */
+    public synchronized void requeue(ImportJob job, Runnable producer) {
+        enqueue(job, job.getStatus() != ImportJob.ImportStatus.PENDING, producer);
+    }
+
+    private void enqueue(ImportJob job, boolean resume, Runnable producer) {
+        ImportJob.ImportPriority priority = job.getPriority() == null ? ImportJob.ImportPriority.NORMAL : job.getPriority();
+        QueuedJob entry = new QueuedJob(job.getId(), job.getAttempt(), priority, sequence.incrementAndGet(), resume,
+                producer);
+        queued.put(job.getId(), entry);
+        queue.add(entry);
+        if (Boolean.TRUE.equals(job.getPaused())) {
+            paused.add(job.getId());
+        }
+        log.info("Queued import job {} with priority {} ({} queued, {} running)", job.getId(), priority,
+                queued.size(), running);
+        dispatch();
+    }
+
+    /**
+     * Removes a waiting job from the queue.
+     *
+     * @return false if the job is not waiting here
+     */
+    public synchronized boolean remove(String jobId) {
+        QueuedJob entry = queued.remove(jobId);
+        paused.remove(jobId);
+        return entry != null && queue.remove(entry);
+    }
+
+    public synchronized void setPaused(String jobId, boolean pause) {
+        if (!queued.containsKey(jobId)) {
+            return;
+        }
+        if (pause) {
+            paused.add(jobId);
+        } else if (paused.remove(jobId)) {
+            dispatch();
+        }
+    }
+
+    /**
+     * Sends heartbeats for waiting jobs, drops the ones cancelled elsewhere and picks up pauses
+     * made through other instances.
+     */
+    @Scheduled(fixedDelayString = "${product-import.checkpoint.interval-ms}")
+    public void heartbeatQueued() {
+        List<QueuedJob> waiting;
+        synchronized (this) {
+            waiting = new ArrayList<>(queued.values());
+        }
+        if (waiting.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> alive = new ArrayList<>(waiting.size());
+        for (QueuedJob entry : waiting) {
+            try {
+                if (importJobRepository.touch(entry.jobId(), entry.attempt(), now) > 0) {
+                    alive.add(entry.jobId());
+                } else if (remove(entry.jobId())) {
+                    log.info("Import job {} left the queue: cancelled, failed or taken over", entry.jobId());
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to send heartbeat for queued import job {}", entry.jobId(), e);
+                alive.add(entry.jobId());
+            }
+        }
+        if (!alive.isEmpty()) {
+            Set<String> pausedNow = new HashSet<>(importJobRepository.findPaused(alive));
+            for (String jobId : alive) {
+                setPaused(jobId, pausedNow.contains(jobId));
+            }
+        }
+    }
+
+    private void dispatch() {
+        List<QueuedJob> skipped = new ArrayList<>();
+        while (running < maxConcurrent && !queue.isEmpty()) {
+            QueuedJob entry = queue.poll();
+            if (paused.contains(entry.jobId())) {
+                skipped.add(entry);
+                continue;
+            }
+            queued.remove(entry.jobId());
+            running++;
+            producers.execute(() -> run(entry));
+        }
+        queue.addAll(skipped);
+    }
+
+    private void run(QueuedJob entry) {
+        try {
+            // A new job may have been cancelled or paused while it waited
+            if (entry.resume() || importJobRepository.markStarted(entry.jobId(), LocalDateTime.now()) > 0) {
+                entry.producer().run();
+            } else {
+                log.info("Import job {} was cancelled or paused before it started", entry.jobId());
+                requeueIfPaused(entry);
+            }
+        } catch (RuntimeException e) {
+            log.error("Import producer for job {} failed", entry.jobId(), e);
+        } finally {
+            synchronized (this) {
+                running--;
+                dispatch();
+            }
+        }
+    }
+
+    private void requeueIfPaused(QueuedJob entry) {
+        ImportJob job = importJobRepository.findById(entry.jobId()).orElse(null);
+        if (job != null && job.getStatus() == ImportJob.ImportStatus.PENDING && Boolean.TRUE.equals(job.getPaused())) {
+            synchronized (this) {
+                queued.put(entry.jobId(), entry);
+                queue.add(entry);
+                paused.add(entry.jobId());
+            }
+        }
+    }
+
+    private record QueuedJob(String jobId, int attempt, ImportJob.ImportPriority priority, long sequence,
+            boolean resume, Runnable producer) {
+    }
+}
@@ -13,6 +13,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -58,10 +61,18 @@ public class InventoryService {
 
         List<InventoryReservedEvent.ReservedItemDTO> reservedItems = new ArrayList<>();
 
+        // Imports update stock concurrently, so the items stay locked until the reservation commits
+        Map<String, InventoryItem> inventoryItems = inventoryRepository.findAllForUpdate(
+                        event.getItems().stream().map(OrderCreatedEvent.OrderItemDTO::getProductId).toList())
+                .stream()
+                .collect(Collectors.toMap(InventoryItem::getProductId, Function.identity()));
+
         // Check and reserve inventory for each item
         for (OrderCreatedEvent.OrderItemDTO item : event.getItems()) {
-            InventoryItem inventoryItem = inventoryRepository.findByProductId(item.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + item.getProductId()));
+            InventoryItem inventoryItem = inventoryItems.get(item.getProductId());
+            if (inventoryItem == null) {
+                throw new RuntimeException("Product not found: " + item.getProductId());
+            }
 
             if (!inventoryItem.hasAvailableStock(item.getQuantity())) {
                 log.warn("Insufficient inventory for product: {} (requested: {}, available: {})",
@@ -0,0 +1,115 @@
+package com.example.inventory.service;
+
+import com.example.inventory.repository.ProductExportReader;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Streams the product catalog as CSV or NDJSON.
+ * <p>
+ * Rows are written to the output as the cursor yields them, so memory stays constant whatever
+ * the catalog size. Both formats use the column names of the {@code products} table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductExport {
+
+    private static final String[] FIELDS = {"id", "internal_id", "name", "description", "brand", "category",
+            "price", "currency", "stock", "ean", "color", "size", "availability", "updated_at"};
+
+    private final ProductExportReader productExportReader;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public void write(Format format, String category, String brand, LocalDateTime updatedSince, OutputStream output)
+            throws IOException {
+        long started = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        long rows;
+        if (format == Format.CSV) {
+            writer.write(String.join(",", FIELDS));
+            writer.write('\n');
+            rows = productExportReader.forEach(category, brand, updatedSince, row -> writeCsv(row, writer));
+        } else {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+            json.setRootValueSeparator(null);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            rows = productExportReader.forEach(category, brand, updatedSince, row -> writeJson(row, json));
+            json.flush();
+        }
+        writer.flush();
+        log.info("Exported {} products as {} in {} ms", rows, format, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void writeCsv(ProductExportReader.Row row, Writer writer) throws SQLException, IOException {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(text(row, i + 1)));
+        }
+        writer.write('\n');
+    }
+
+    private static void writeJson(ProductExportReader.Row row, JsonGenerator json) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeNumberField(FIELDS[0], row.getLong(1));
+        for (int i = 1; i < FIELDS.length; i++) {
+            int column = i + 1;
+            json.writeFieldName(FIELDS[i]);
+            Object value = row.getObject(column);
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof BigDecimal price) {
+                json.writeNumber(price);
+            } else if (value instanceof Integer stock) {
+                json.writeNumber(stock);
+            } else {
+                json.writeString(text(row, column));
+            }
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static String text(ProductExportReader.Row row, int column) throws SQLException {
+        Object value = row.getObject(column);
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value == null ? null : value.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
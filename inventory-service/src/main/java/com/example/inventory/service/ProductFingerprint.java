@@ -0,0 +1,60 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * 64-bit FNV-1a fingerprint over the imported fields of a product.
+ * <p>
+ * Prices are normalized first so that {@code 10.5} and {@code 10.50} hash alike, and every
+ * field is followed by a separator, with a distinct marker for null, so that shifting text
+ * between adjacent fields changes the hash.
+ */
+final class ProductFingerprint {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final char SEPARATOR = 0x1F;
+    private static final char NULL_MARKER = 0x00;
+
+    private long hash = OFFSET_BASIS;
+
+    private ProductFingerprint() {
+    }
+
+    static long of(Product product) {
+        BigDecimal price = product.getPrice();
+        return new ProductFingerprint()
+                .add(product.getInternalId())
+                .add(product.getName())
+                .add(product.getDescription())
+                .add(product.getBrand())
+                .add(product.getCategory())
+                .add(price == null ? null : price.stripTrailingZeros().toPlainString())
+                .add(product.getCurrency())
+                .add(product.getStock() == null ? null : product.getStock().toString())
+                .add(product.getEan())
+                .add(product.getColor())
+                .add(product.getSize())
+                .add(product.getAvailability())
+                .hash;
+    }
+
+    private ProductFingerprint add(String value) {
+        if (value == null) {
+            mix(NULL_MARKER);
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                mix(value.charAt(i));
+            }
+        }
+        mix(SEPARATOR);
+        return this;
+    }
+
+    private void mix(char c) {
+        hash = (hash ^ (c & 0xFF)) * PRIME;
+        hash = (hash ^ (c >>> 8)) * PRIME;
+    }
+}
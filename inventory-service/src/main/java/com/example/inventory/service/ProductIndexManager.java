@@ -0,0 +1,219 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.Product;
+import com.example.inventory.repository.ProductExportReader;
+import com.example.inventory.service.index.ProductIndex;
+import com.example.inventory.service.index.ProductIndexWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Owns the instance's memory-mapped {@link ProductIndex}.
+ * <p>
+ * Each build goes into a new generation directory. Once it is written and mapped, it replaces
+ * the current index in one reference swap, and the {@code CURRENT} pointer file is moved into
+ * place atomically, so a restart maps the latest complete generation instead of warming up.
+ * <p>
+ * The index is only served while it matches the database. Any product change an import
+ * broadcasts marks it stale until the next build, and a mapped index is checked against the
+ * table's row count and latest {@code updated_at} before it is first used.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductIndexManager {
+
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final String GENERATION_PREFIX = "gen-";
+
+    private final ProductExportReader productExportReader;
+
+    @Value("${product-index.enabled}")
+    private boolean enabled;
+
+    @Value("${product-index.directory}")
+    private Path directory;
+
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+    // Product changes seen so far; an index is fresh while no change happened after its build
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public record Summary(boolean enabled, boolean fresh, Integer products, LocalDateTime builtAt) {
+    }
+
+    private record Generation(String name, ProductIndex index, long changesSeen) {
+    }
+
+    // After startup, so the schema exists before the first build
+    @EventListener(ApplicationReadyEvent.class)
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String name = Files.readString(directory.resolve(CURRENT_FILE), StandardCharsets.UTF_8).trim();
+            ProductIndex index = ProductIndex.open(directory.resolve(name));
+            long changesSeen = changes.get();
+            if (matchesDatabase(index)) {
+                current.set(new Generation(name, index, changesSeen));
+                log.info("Mapped product index {} with {} products", name, index.size());
+                return;
+            }
+            current.set(new Generation(name, index, -1));
+            log.info("Product index {} is out of date, rebuilding", name);
+        } catch (NoSuchFileException e) {
+            log.info("No product index yet, building one");
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to map the product index, rebuilding", e);
+        }
+        requestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * @return the index if it reflects the current catalog, otherwise null
+     */
+    public ProductIndex current() {
+        Generation generation = current.get();
+        return generation != null && generation.changesSeen() == changes.get() ? generation.index() : null;
+    }
+
+    public void markChanged() {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Rebuilds the index in the background. Requests made while a build is queued are merged into it.
+     */
+    public void requestRebuild() {
+        if (enabled && rebuildPending.compareAndSet(false, true)) {
+            rebuilder.execute(this::rebuild);
+        }
+    }
+
+    public Summary summary() {
+        Generation generation = current.get();
+        return new Summary(enabled, current() != null, generation == null ? null : generation.index().size(),
+                generation == null ? null : generation.index().builtAt());
+    }
+
+    private void rebuild() {
+        rebuildPending.set(false);
+        long changesSeen = changes.get();
+        long started = System.nanoTime();
+        String name = GENERATION_PREFIX + System.currentTimeMillis();
+        Path target = directory.resolve(name);
+        try {
+            try (ProductIndexWriter writer = new ProductIndexWriter(target)) {
+                productExportReader.forEach(null, null, null, row -> writer.add(toProduct(row)));
+                writer.finish();
+            }
+            ProductIndex index = ProductIndex.open(target);
+
+            // Changes broadcast during the build may already be in it; the database tells
+            if (changes.get() != changesSeen) {
+                changesSeen = changes.get();
+                if (!matchesDatabase(index)) {
+                    changesSeen = -1;
+                }
+            }
+
+            Path pointer = directory.resolve(CURRENT_FILE + ".tmp");
+            Files.writeString(pointer, name, StandardCharsets.UTF_8);
+            Files.move(pointer, directory.resolve(CURRENT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            current.set(new Generation(name, index, changesSeen));
+            log.info("Built product index {} with {} products in {} ms{}", name, index.size(),
+                    (System.nanoTime() - started) / 1_000_000, changesSeen < 0 ? ", already out of date" : "");
+            deleteGenerationsExcept(name);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to build product index {}", name, e);
+            deleteQuietly(target);
+        }
+    }
+
+    private boolean matchesDatabase(ProductIndex index) {
+        ProductExportReader.CatalogVersion version = productExportReader.catalogVersion();
+        long maxUpdatedAt = version.maxUpdatedAt() == null ? Long.MIN_VALUE
+                : ProductIndex.toMicros(version.maxUpdatedAt());
+        return version.rows() == index.size() && maxUpdatedAt == index.maxUpdatedAtMicros();
+    }
+
+    private static Product toProduct(ProductExportReader.Row row) throws SQLException {
+        Timestamp updatedAt = row.getTimestamp(14);
+        return Product.builder()
+                .id(row.getLong(1))
+                .internalId(row.getString(2))
+                .name(row.getString(3))
+                .description(row.getString(4))
+                .brand(row.getString(5))
+                .category(row.getString(6))
+                .price(row.getBigDecimal(7))
+                .currency(row.getString(8))
+                .stock((Integer) row.getObject(9))
+                .ean(row.getString(10))
+                .color(row.getString(11))
+                .size(row.getString(12))
+                .availability(row.getString(13))
+                .updatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime())
+                .build();
+    }
+
+    // Mapped generations stay readable after deletion until they are garbage collected
+    private void deleteGenerationsExcept(String keep) {
+        try (Stream<Path> generations = Files.list(directory)) {
+            List<Path> stale = generations
+                    .filter(path -> path.getFileName().toString().startsWith(GENERATION_PREFIX))
+                    .filter(path -> !path.getFileName().toString().equals(keep))
+                    .toList();
+            stale.forEach(ProductIndexManager::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Failed to clean up old product index generations", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing to delete
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", path, e);
+        }
+    }
+}
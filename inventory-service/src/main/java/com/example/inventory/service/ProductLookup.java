@@ -0,0 +1,239 @@
+package com.example.inventory.service;
+
+import com.example.inventory.entity.Product;
+import com.example.inventory.entity.ProductAttribute;
+import com.example.inventory.repository.ProductAttributeDictionary;
+import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.service.index.ProductIndex;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Product reads for the storefront.
+ * <p>
+ * Lookups by internal ID and EAN go through a size-bounded cache with a TTL. Imports evict the
+ * keys of the products they write, so the TTL only bounds staleness when an eviction is lost.
+ * Misses are served from the memory-mapped product index while it is current, and from the
+ * database otherwise.
+ * The EAN cache holds internal IDs rather than products: the products themselves come from the
+ * internal ID cache, and are dropped if their EAN has changed since, so an update never has to
+ * know the EAN a product had before.
+ * <p>
+ * Listings are not cached; they page by id instead of OFFSET, so every page costs the same.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductLookup {
+
+    private static final int MAX_PAGE_SIZE = 500;
+    // More products sharing an EAN than this are looked up in the database
+    private static final int MAX_EAN_MATCHES = 64;
+
+    private final ProductRepository productRepository;
+    private final ProductIndexManager productIndexManager;
+    private final ProductAttributeDictionary productAttributeDictionary;
+
+    @Value("${product-cache.max-size}")
+    private long maxSize;
+
+    @Value("${product-cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    private LoadingCache<String, Optional<Product>> byInternalId;
+    private LoadingCache<String, List<String>> internalIdsByEan;
+
+    private final Latency internalIdLatency = new Latency();
+    private final Latency eanLatency = new Latency();
+    private final Latency listLatency = new Latency();
+
+    public record Page(List<Product> items, Long nextAfter) {
+    }
+
+    public record Stats(CacheSummary byInternalId, CacheSummary byEan, LatencySummary internalIdLookups,
+            LatencySummary eanLookups, LatencySummary listings, ProductIndexManager.Summary index) {
+    }
+
+    public record CacheSummary(long size, double hitRate, long hits, long misses, long evictions,
+            double averageLoadMillis) {
+    }
+
+    public record LatencySummary(long count, double averageMillis) {
+    }
+
+    @PostConstruct
+    public void init() {
+        byInternalId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Optional<Product> load(String internalId) {
+                        ProductIndex index = productIndexManager.current();
+                        if (index != null) {
+                            int record = index.findByInternalId(internalId);
+                            return record < 0 ? Optional.empty() : Optional.of(index.product(record));
+                        }
+                        return productRepository.findByInternalId(internalId);
+                    }
+
+                    @Override
+                    public Map<String, Optional<Product>> loadAll(Set<? extends String> internalIds) {
+                        Map<String, Optional<Product>> loaded = new HashMap<>();
+                        for (String internalId : internalIds) {
+                            loaded.put(internalId, Optional.empty());
+                        }
+                        ProductIndex index = productIndexManager.current();
+                        if (index != null) {
+                            for (String internalId : internalIds) {
+                                int record = index.findByInternalId(internalId);
+                                if (record >= 0) {
+                                    loaded.put(internalId, Optional.of(index.product(record)));
+                                }
+                            }
+                            return loaded;
+                        }
+                        for (Product product : productRepository.findByInternalIdIn(List.copyOf(internalIds))) {
+                            loaded.put(product.getInternalId(), Optional.of(product));
+                        }
+                        return loaded;
+                    }
+                });
+        internalIdsByEan = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build(this::loadInternalIdsByEan);
+    }
+
+    private List<String> loadInternalIdsByEan(String ean) {
+        ProductIndex index = productIndexManager.current();
+        if (index != null) {
+            int[] records = new int[MAX_EAN_MATCHES];
+            int found = index.findByEan(ean, records);
+            // Non-numeric EANs are not indexed
+            if (found >= 0 && found < MAX_EAN_MATCHES) {
+                List<String> internalIds = new ArrayList<>(found);
+                for (int i = 0; i < found; i++) {
+                    internalIds.add(index.internalId(records[i]));
+                }
+                return internalIds;
+            }
+        }
+        return productRepository.findInternalIdsByEan(ean);
+    }
+
+    public Optional<Product> findByInternalId(String internalId) {
+        return internalIdLatency.time(() -> byInternalId.get(internalId));
+    }
+
+    public List<Product> findByEan(String ean) {
+        return eanLatency.time(() -> {
+            List<String> internalIds = internalIdsByEan.get(ean);
+            if (internalIds.isEmpty()) {
+                return List.of();
+            }
+            Map<String, Optional<Product>> products = byInternalId.getAll(internalIds);
+            List<Product> matching = new ArrayList<>(internalIds.size());
+            for (String internalId : internalIds) {
+                products.get(internalId)
+                        .filter(product -> Objects.equals(product.getEan(), ean))
+                        .ifPresent(matching::add);
+            }
+            return matching;
+        });
+    }
+
+    /**
+     * Returns the page of products after the given id, optionally filtered by category and brand.
+     */
+    public Page list(String category, String brand, Long after, int limit) {
+        return listLatency.time(() -> {
+            // A value never stored matches nothing; filtering on it must not store it
+            if (category != null && productAttributeDictionary.find(ProductAttribute.Kind.CATEGORY, category) == null
+                    || brand != null && productAttributeDictionary.find(ProductAttribute.Kind.BRAND, brand) == null) {
+                return new Page(List.of(), null);
+            }
+            long afterId = after == null ? 0 : after;
+            Pageable page = PageRequest.ofSize(Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+            List<Product> items;
+            if (category != null && brand != null) {
+                items = productRepository.findByCategoryAndBrandAndIdGreaterThanOrderByIdAsc(category, brand,
+                        afterId, page);
+            } else if (category != null) {
+                items = productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(category, afterId, page);
+            } else if (brand != null) {
+                items = productRepository.findByBrandAndIdGreaterThanOrderByIdAsc(brand, afterId, page);
+            } else {
+                items = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, page);
+            }
+            Long nextAfter = items.size() < page.getPageSize() ? null : items.get(items.size() - 1).getId();
+            return new Page(items, nextAfter);
+        });
+    }
+
+    public void invalidate(Collection<String> internalIds, Collection<String> eans) {
+        byInternalId.invalidateAll(internalIds);
+        internalIdsByEan.invalidateAll(eans);
+    }
+
+    public void invalidateAll() {
+        byInternalId.invalidateAll();
+        internalIdsByEan.invalidateAll();
+        log.info("Product cache cleared");
+    }
+
+    public Stats stats() {
+        return new Stats(summary(byInternalId), summary(internalIdsByEan), internalIdLatency.summary(),
+                eanLatency.summary(), listLatency.summary(), productIndexManager.summary());
+    }
+
+    private static CacheSummary summary(LoadingCache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheSummary(cache.estimatedSize(), stats.hitRate(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.averageLoadPenalty() / 1_000_000.0);
+    }
+
+    private static final class Latency {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        <T> T time(Supplier<T> lookup) {
+            long started = System.nanoTime();
+            try {
+                return lookup.get();
+            } finally {
+                totalNanos.add(System.nanoTime() - started);
+                count.increment();
+            }
+        }
+
+        LatencySummary summary() {
+            long n = count.sum();
+            return new LatencySummary(n, n == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / n);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.inventory.service.csv;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a memory-mapped CSV file into byte ranges that start and end on record boundaries.
+ * <p>
+ * Boundaries follow {@link ProductCsvParser}'s quoting rule: a quote opens a quoted field only as
+ * the first byte of a field, and inside a quoted field a doubled quote is an escape while any other
+ * quote closes it. Every segment is scanned in parallel once from each of the four scanner states,
+ * remembering its first record boundary and the state it ends in. A prefix pass then tells which
+ * state each segment really starts in, so ranges break exactly where the parser's records do.
+ */
+public final class CsvRangeSplitter {
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte NEWLINE = '\n';
+
+    // Scanner states: at the start of a field, in an unquoted field (or after a closing quote),
+    // in a quoted field, and right after a quote inside a quoted field
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int STATES = 4;
+
+    private CsvRangeSplitter() {
+    }
+
+    /**
+     * Returns the offset of the first byte after the header record.
+     */
+    public static long findHeaderEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        int state = FIELD_START;
+        while (position < size) {
+            long length = Math.min(size - position, Integer.MAX_VALUE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(i);
+                if (b == NEWLINE && state != QUOTED) {
+                    return position + i + 1;
+                }
+                state = next(state, b);
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    /**
+     * Splits {@code [dataStart, channel.size())} into at most {@code rangeCount} record-aligned ranges.
+     * Segments are scanned on the given executor.
+     */
+    public static List<ByteRange> split(FileChannel channel, long dataStart, int rangeCount,
+            ExecutorService executor) throws IOException, InterruptedException {
+        long size = channel.size();
+        long dataSize = size - dataStart;
+        if (dataSize <= 0) {
+            return List.of();
+        }
+
+        int segments = (int) Math.max(1, Math.min(rangeCount, dataSize));
+        long segmentSize = dataSize / segments;
+        if (segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Range size " + segmentSize + " exceeds mappable size, use more ranges");
+        }
+
+        List<Callable<SegmentScan>> scans = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            long start = dataStart + i * segmentSize;
+            long end = i == segments - 1 ? size : start + segmentSize;
+            scans.add(() -> scanSegment(channel, start, end));
+        }
+
+        List<SegmentScan> results = new ArrayList<>(segments);
+        try {
+            for (Future<SegmentScan> future : executor.invokeAll(scans)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to scan CSV segment", e.getCause());
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(segments);
+        long rangeStart = dataStart;
+        int state = results.get(0).endState()[FIELD_START];
+        for (int i = 1; i < segments; i++) {
+            SegmentScan scan = results.get(i);
+            long firstNewline = scan.firstBoundary()[state];
+            if (firstNewline >= 0 && firstNewline + 1 < size) {
+                // Segment without a record boundary is merged into the previous range
+                ranges.add(new ByteRange(rangeStart, firstNewline + 1));
+                rangeStart = firstNewline + 1;
+            }
+            state = scan.endState()[state];
+        }
+        ranges.add(new ByteRange(rangeStart, size));
+        return ranges;
+    }
+
+    private static SegmentScan scanSegment(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int length = (int) (end - start);
+
+        // One scanner per starting state; scanners that reach the same state run identically from
+        // there on, so once they all agree the rest of the segment is scanned only once
+        int[] state = {FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED};
+        long[] firstBoundary = {-1, -1, -1, -1};
+        int i = 0;
+        for (; i < length && !converged(state, firstBoundary); i++) {
+            byte b = buffer.get(i);
+            for (int s = 0; s < STATES; s++) {
+                if (b == NEWLINE && state[s] != QUOTED && firstBoundary[s] < 0) {
+                    firstBoundary[s] = start + i;
+                }
+                state[s] = next(state[s], b);
+            }
+        }
+        if (i < length) {
+            int shared = state[0];
+            for (; i < length; i++) {
+                shared = next(shared, buffer.get(i));
+            }
+            Arrays.fill(state, shared);
+        }
+        return new SegmentScan(firstBoundary, state);
+    }
+
+    private static boolean converged(int[] state, long[] firstBoundary) {
+        for (int s = 0; s < STATES; s++) {
+            if (firstBoundary[s] < 0 || state[s] != state[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int next(int state, byte b) {
+        return switch (state) {
+            case FIELD_START -> b == QUOTE ? QUOTED : b == COMMA || b == NEWLINE ? FIELD_START : UNQUOTED;
+            case QUOTED -> b == QUOTE ? QUOTE_IN_QUOTED : QUOTED;
+            case QUOTE_IN_QUOTED -> b == QUOTE ? QUOTED : b == COMMA || b == NEWLINE ? FIELD_START : UNQUOTED;
+            default -> b == COMMA || b == NEWLINE ? FIELD_START : UNQUOTED;
+        };
+    }
+
+    /**
+     * @param firstBoundary per starting state, offset of the first newline that ends a record, or -1
+     * @param endState      per starting state, the scanner state after the segment's last byte
+     */
+    private record SegmentScan(long[] firstBoundary, int[] endState) {
+    }
+
+    public record ByteRange(long start, long end) {
+
+        public long length() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.inventory.service.csv;
+
+import com.example.inventory.messaging.dto.ProductDTO;
+import com.example.inventory.service.source.ProductRecordParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Streaming CSV parser specialized for the product import schema.
+ * <p>
+ * Records are scanned as bytes in a reusable buffer; a record is only described by field
+ * boundaries until {@link #product()} materializes it. Column positions are resolved from the
+ * header once, price and stock are parsed straight from the bytes, and the low-cardinality
+ * columns are interned so repeated values share one string. Byte offsets of every record are
+ * tracked, which the import uses to tile the source into chunks.
+ * <p>
+ * Follows the dialect the import used with commons-csv: comma separated, double-quote
+ * encapsulated with doubled quotes as escapes, values trimmed, empty lines skipped.
+ */
+public final class ProductCsvParser implements ProductRecordParser {
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELDS = 64;
+    private static final int MAX_INTERNED_PER_COLUMN = 4096;
+
+    private static final String[] COLUMNS = {"Internal ID", "Name", "Description", "Brand", "Category", "Price",
+            "Currency", "Stock", "EAN", "Color", "Size", "Availability"};
+    private static final int INTERNAL_ID = 0;
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int BRAND = 3;
+    private static final int CATEGORY = 4;
+    private static final int PRICE = 5;
+    private static final int CURRENCY = 6;
+    private static final int STOCK = 7;
+    private static final int EAN = 8;
+    private static final int COLOR = 9;
+    private static final int SIZE = 10;
+    private static final int AVAILABILITY = 11;
+
+    private final InputStream in;
+
+    private byte[] buffer;
+    private int limit;
+    private int position;
+    private boolean eof;
+    // Absolute source offset of buffer[0]
+    private long bufferOffset;
+
+    private long recordStart = -1;
+    private int fieldCount;
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private final boolean[] fieldEscaped = new boolean[MAX_FIELDS];
+
+    // Field index of each schema column, -1 when the header lacks it
+    private final int[] columnIndex = new int[COLUMNS.length];
+    private final Interner[] interners = new Interner[COLUMNS.length];
+
+    /**
+     * @param startOffset absolute offset of the stream's first byte in the source
+     */
+    public ProductCsvParser(InputStream in, long startOffset) {
+        this(in, startOffset, DEFAULT_BUFFER_SIZE);
+    }
+
+    ProductCsvParser(InputStream in, long startOffset, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.bufferOffset = startOffset;
+        Arrays.fill(columnIndex, -1);
+        for (int column : new int[]{BRAND, CATEGORY, CURRENCY, COLOR, SIZE, AVAILABILITY}) {
+            interners[column] = new Interner();
+        }
+    }
+
+    /**
+     * Reads the next record as the header and resolves the schema columns from it.
+     *
+     * @return the header values, or an empty array for empty input
+     */
+    public String[] readHeader() throws IOException {
+        skipByteOrderMark();
+        if (!next()) {
+            return new String[0];
+        }
+        String[] header = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            header[i] = field(i);
+        }
+        useHeader(header);
+        return header;
+    }
+
+    // A UTF-8 byte order mark belongs to no field; skipping it keeps a quoted first column quoted
+    private void skipByteOrderMark() throws IOException {
+        while (limit - position < BOM.length && !eof) {
+            fill(position);
+        }
+        if (limit - position >= BOM.length && buffer[position] == BOM[0] && buffer[position + 1] == BOM[1]
+                && buffer[position + 2] == BOM[2]) {
+            position += BOM.length;
+        }
+    }
+
+    /**
+     * Resolves the schema columns from a header read elsewhere, for input that starts mid-file.
+     * Matching ignores case, as the commons-csv import did.
+     */
+    public void useHeader(String[] header) {
+        Arrays.fill(columnIndex, -1);
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].trim().toLowerCase(Locale.ROOT);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (COLUMNS[c].toLowerCase(Locale.ROOT).equals(name) && columnIndex[c] < 0) {
+                    columnIndex[c] = i;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            int start = position;
+            int end = scanRecord(start);
+            if (end == -2) {
+                fill(start);
+                continue;
+            }
+            if (end == -1) {
+                recordStart = -1;
+                return false;
+            }
+            position = end;
+            if (fieldCount == 1 && fieldStart[0] == fieldEnd[0] && !fieldEscaped[0] && isBlankLine(start, end)) {
+                continue;
+            }
+            recordStart = bufferOffset + start;
+            return true;
+        }
+    }
+
+    @Override
+    public long recordStart() {
+        return recordStart;
+    }
+
+    @Override
+    public long offset() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a column is missing or a number is malformed
+     */
+    @Override
+    public ProductDTO product() {
+        return ProductDTO.builder()
+                .internalId(string(INTERNAL_ID))
+                .name(string(NAME))
+                .description(string(DESCRIPTION))
+                .brand(string(BRAND))
+                .category(string(CATEGORY))
+                .price(decimal(PRICE))
+                .currency(string(CURRENCY))
+                .stock(integer(STOCK))
+                .ean(string(EAN))
+                .color(string(COLOR))
+                .size(string(SIZE))
+                .availability(string(AVAILABILITY))
+                .build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // --- Record scanning ---
+
+    /**
+     * Scans one record starting at {@code start} and records its field boundaries.
+     *
+     * @return index after the record's line terminator, -1 at end of input, or -2 if more bytes are needed
+     */
+    private int scanRecord(int start) {
+        if (start >= limit) {
+            return eof ? -1 : -2;
+        }
+        fieldCount = 0;
+        int i = start;
+        while (true) {
+            if (fieldCount == MAX_FIELDS) {
+                throw new IllegalStateException("Record at byte " + (bufferOffset + start) + " has more than "
+                        + MAX_FIELDS + " fields");
+            }
+            int f = fieldCount++;
+            fieldEscaped[f] = false;
+
+            if (i < limit && buffer[i] == QUOTE) {
+                // Quoted field: runs to the closing quote, doubled quotes are escapes
+                int valueStart = i + 1;
+                i = valueStart;
+                while (true) {
+                    if (i >= limit) {
+                        if (!eof) {
+                            return -2;
+                        }
+                        // Unterminated quote: the field runs to the end of the input
+                        fieldStart[f] = valueStart;
+                        fieldEnd[f] = limit;
+                        trim(f);
+                        return limit;
+                    }
+                    if (buffer[i] == QUOTE) {
+                        if (i + 1 >= limit && !eof) {
+                            return -2;
+                        }
+                        if (i + 1 < limit && buffer[i + 1] == QUOTE) {
+                            fieldEscaped[f] = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fieldStart[f] = valueStart;
+                fieldEnd[f] = i;
+                i++;
+                // Skip anything between the closing quote and the delimiter
+                while (i < limit && buffer[i] != COMMA && buffer[i] != LF) {
+                    i++;
+                }
+            } else {
+                fieldStart[f] = i;
+                while (i < limit && buffer[i] != COMMA && buffer[i] != LF) {
+                    i++;
+                }
+                fieldEnd[f] = i;
+            }
+
+            if (i >= limit) {
+                if (!eof) {
+                    return -2;
+                }
+                trim(f);
+                return limit;
+            }
+            trim(f);
+            if (buffer[i] == LF) {
+                return i + 1;
+            }
+            i++; // comma
+        }
+    }
+
+    private void trim(int f) {
+        int s = fieldStart[f];
+        int e = fieldEnd[f];
+        while (s < e && (buffer[s] & 0xFF) <= ' ') {
+            s++;
+        }
+        while (e > s && (buffer[e - 1] & 0xFF) <= ' ') {
+            e--;
+        }
+        fieldStart[f] = s;
+        fieldEnd[f] = e;
+    }
+
+    private boolean isBlankLine(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] != CR && buffer[i] != LF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it if a single record fills it,
+     * and reads more input.
+     */
+    private void fill(int recordStart) throws IOException {
+        int remaining = limit - recordStart;
+        if (recordStart > 0) {
+            System.arraycopy(buffer, recordStart, buffer, 0, remaining);
+            bufferOffset += recordStart;
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        limit = remaining;
+        position = 0;
+
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    // --- Field access ---
+
+    private String field(int index) {
+        int start = fieldStart[index];
+        int length = fieldEnd[index] - start;
+        if (!fieldEscaped[index]) {
+            return new String(buffer, start, length, StandardCharsets.UTF_8);
+        }
+        return new String(buffer, start, length, StandardCharsets.UTF_8).replace("\"\"", "\"");
+    }
+
+    private int require(int column) {
+        int index = columnIndex[column];
+        if (index < 0) {
+            throw new IllegalArgumentException("Mapping for " + COLUMNS[column] + " not found");
+        }
+        if (index >= fieldCount) {
+            throw new IllegalArgumentException("Record has " + fieldCount + " values, missing column "
+                    + COLUMNS[column]);
+        }
+        return index;
+    }
+
+    private String string(int column) {
+        int index = require(column);
+        Interner interner = interners[column];
+        if (interner == null || fieldEscaped[index]) {
+            return field(index);
+        }
+        return interner.intern(buffer, fieldStart[index], fieldEnd[index]);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code -12.50} without an intermediate string; anything
+     * else, like exponents or very long values, goes through {@link BigDecimal}'s own parser.
+     */
+    private BigDecimal decimal(int column) {
+        int index = require(column);
+        int i = fieldStart[index];
+        int end = fieldEnd[index];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || (i < end && buffer[i] == '+')) {
+            i++;
+        }
+
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                if (++digits > 18) {
+                    return new BigDecimal(field(index));
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return new BigDecimal(field(index));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid price: \"" + field(index) + "\"");
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    private Integer integer(int column) {
+        int index = require(column);
+        int i = fieldStart[index];
+        int end = fieldEnd[index];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || (i < end && buffer[i] == '+')) {
+            i++;
+        }
+        if (i == end || end - i > 10) {
+            return Integer.parseInt(field(index));
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b < '0' || b > '9') {
+                throw new NumberFormatException("For input string: \"" + field(index) + "\"");
+            }
+            value = value * 10 + (b - '0');
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + field(index) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Open-addressing table from UTF-8 bytes to a shared string, bounded so a column with
+     * unexpectedly many distinct values stops interning instead of growing without limit.
+     */
+    private static final class Interner {
+
+        private byte[][] keys = new byte[64][];
+        private String[] values = new String[64];
+        private int size;
+
+        String intern(byte[] source, int start, int end) {
+            int length = end - start;
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + source[i];
+            }
+
+            int mask = keys.length - 1;
+            int slot = mix(hash) & mask;
+            while (keys[slot] != null) {
+                if (Arrays.equals(keys[slot], 0, keys[slot].length, source, start, end)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            String value = new String(source, start, length, StandardCharsets.UTF_8);
+            if (size >= MAX_INTERNED_PER_COLUMN) {
+                return value;
+            }
+            keys[slot] = Arrays.copyOfRange(source, start, end);
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+            return value;
+        }
+
+        private void rehash() {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) {
+                    continue;
+                }
+                int hash = 1;
+                for (byte b : oldKeys[i]) {
+                    hash = 31 * hash + b;
+                }
+                int slot = mix(hash) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
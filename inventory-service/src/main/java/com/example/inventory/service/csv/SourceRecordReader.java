@@ -0,0 +1,118 @@
+package com.example.inventory.service.csv;
+
+import com.example.inventory.service.source.ImportSource;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads single records back out of a source file by their byte offset.
+ * <p>
+ * Bytes are read a block at a time until the record's line terminator, honouring quoted
+ * fields that span lines in CSV. Records longer than {@value #MAX_RECORD_BYTES} bytes are cut.
+ * Compressed sources are decoded forward from the start, as their offsets count decoded bytes;
+ * reading an offset before the last one decodes the file again, so callers should read in
+ * offset order where they can.
+ */
+public final class SourceRecordReader implements Closeable {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final Path path;
+    private final boolean csv;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_BYTES);
+
+    // Decoded content of a compressed source, and the offset it is positioned at
+    private InputStream decoded;
+    private long decodedPosition;
+
+    public SourceRecordReader(Path path) throws IOException {
+        ImportSource.Type type = ImportSource.detect(path);
+        this.path = path;
+        this.csv = type.format() == ImportSource.Format.CSV;
+        this.channel = type.compression() == ImportSource.Compression.NONE
+                ? FileChannel.open(path, StandardOpenOption.READ) : null;
+    }
+
+    /**
+     * @return the record starting at {@code offset} without its line terminator, or null past the end of the file
+     */
+    public String read(long offset) throws IOException {
+        return channel != null ? readFile(offset) : readDecoded(offset);
+    }
+
+    private String readFile(long offset) throws IOException {
+        buffer.clear();
+        boolean quoted = false;
+        int scanned = 0;
+        while (buffer.hasRemaining()) {
+            buffer.limit(Math.min(buffer.capacity(), buffer.position() + BLOCK_SIZE));
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (; scanned < buffer.position(); scanned++) {
+                byte b = bytes[scanned];
+                if (b == '"' && csv) {
+                    // Escaped quotes toggle twice
+                    quoted = !quoted;
+                } else if (!quoted && (b == '\n' || b == '\r')) {
+                    return new String(bytes, 0, scanned, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return buffer.position() == 0 ? null : new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private String readDecoded(long offset) throws IOException {
+        if (decoded == null || offset < decodedPosition) {
+            if (decoded != null) {
+                decoded.close();
+            }
+            decoded = ImportSource.open(path);
+            decodedPosition = 0;
+        }
+        try {
+            decoded.skipNBytes(offset - decodedPosition);
+        } catch (EOFException e) {
+            decodedPosition = Long.MAX_VALUE;
+            return null;
+        }
+        decodedPosition = offset;
+
+        byte[] bytes = buffer.array();
+        int length = 0;
+        boolean quoted = false;
+        int b = -1;
+        while (length < bytes.length && (b = decoded.read()) >= 0) {
+            decodedPosition++;
+            if (b == '"' && csv) {
+                quoted = !quoted;
+            } else if (!quoted && (b == '\n' || b == '\r')) {
+                break;
+            }
+            bytes[length++] = (byte) b;
+        }
+        return b < 0 && length == 0 ? null : new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (decoded != null) {
+            decoded.close();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.inventory.service.index;
+
+import com.example.inventory.entity.Product;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Immutable, memory-mapped product index written by {@link ProductIndexWriter}.
+ * <p>
+ * Two files make up an index:
+ * <ul>
+ *   <li>{@code products.dat} holds one compact record per product. It is mapped in 1 GB segments
+ *       and no record crosses a segment boundary.</li>
+ *   <li>{@code products.idx} holds a header, the offset of every record, and two sorted key
+ *       tables: numeric EANs as plain longs, and 64-bit hashes of internal IDs. Each key is paired
+ *       with its record number.</li>
+ * </ul>
+ * Lookups binary-search the mapped key tables and compare the candidate record's bytes in place,
+ * so finding a product allocates nothing and touches no heap beyond the caller's arguments.
+ * The mappings stay valid after the files are closed or deleted, and instances can be shared
+ * freely between threads: only absolute reads are used.
+ */
+public final class ProductIndex {
+
+    static final String INDEX_FILE = "products.idx";
+    static final String RECORDS_FILE = "products.dat";
+
+    static final int MAGIC = 0x50494458; // "PIDX"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 40;
+
+    static final int SEGMENT_BITS = 30;
+    static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    static final int NULL_INT = Integer.MIN_VALUE;
+    static final long NULL_LONG = Long.MIN_VALUE;
+    static final int NULL_LENGTH = 0xFFFF;
+    static final byte PRICE_NULL = -1;
+    // Prices whose unscaled value does not fit a long are stored as text
+    static final byte PRICE_TEXT = -2;
+
+    // Fixed part of a record: id, updated_at, stock, price scale
+    static final int FIXED_BYTES = 8 + 8 + 4 + 1;
+    static final int TEXT_FIELDS = 10;
+    private static final int EAN_FIELD = 6;
+
+    private final ByteBuffer index;
+    private final ByteBuffer[] segments;
+    private final int records;
+    private final int eans;
+    private final int ids;
+    private final long maxUpdatedAtMicros;
+    private final long builtAtMicros;
+    private final int offsetsPos;
+    private final int eanKeysPos;
+    private final int eanRecordsPos;
+    private final int idKeysPos;
+    private final int idRecordsPos;
+
+    private ProductIndex(ByteBuffer index, ByteBuffer[] segments) {
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a product index of version " + VERSION);
+        }
+        this.index = index;
+        this.segments = segments;
+        records = index.getInt(8);
+        eans = index.getInt(12);
+        ids = index.getInt(16);
+        maxUpdatedAtMicros = index.getLong(24);
+        builtAtMicros = index.getLong(32);
+        offsetsPos = HEADER_BYTES;
+        eanKeysPos = offsetsPos + 8 * records;
+        eanRecordsPos = eanKeysPos + 8 * eans;
+        idKeysPos = eanRecordsPos + 4 * eans;
+        idRecordsPos = idKeysPos + 8 * ids;
+    }
+
+    public static ProductIndex open(Path directory) throws IOException {
+        ByteBuffer index;
+        try (FileChannel channel = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Product index " + directory + " is too large to map");
+            }
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer[] segments;
+        try (FileChannel channel = FileChannel.open(directory.resolve(RECORDS_FILE), StandardOpenOption.READ)) {
+            long size = channel.size();
+            segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, 1L << SEGMENT_BITS));
+                segments[i] = segment;
+            }
+        }
+        return new ProductIndex(index, segments);
+    }
+
+    public int size() {
+        return records;
+    }
+
+    public LocalDateTime builtAt() {
+        return fromMicros(builtAtMicros);
+    }
+
+    /**
+     * Latest {@code updated_at} among the indexed products, in microseconds since the epoch, or
+     * {@link Long#MIN_VALUE} for an empty index.
+     */
+    public long maxUpdatedAtMicros() {
+        return maxUpdatedAtMicros;
+    }
+
+    /**
+     * @return the record number of the product, or -1 if it is not indexed
+     */
+    public int findByInternalId(CharSequence internalId) {
+        long key = hash(internalId);
+        for (int i = lowerBound(idKeysPos, ids, key); i < ids && index.getLong(idKeysPos + 8 * i) == key; i++) {
+            int record = index.getInt(idRecordsPos + 4 * i);
+            if (textEquals(record, 0, internalId)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fills {@code records} with the record numbers of the products with this EAN, in id order.
+     *
+     * @return how many were found, at most {@code records.length}; -1 if the EAN is not numeric
+     *         and therefore not indexed
+     */
+    public int findByEan(CharSequence ean, int[] records) {
+        long key = eanKey(ean);
+        if (key < 0) {
+            return -1;
+        }
+        int found = 0;
+        for (int i = lowerBound(eanKeysPos, eans, key);
+                i < eans && found < records.length && index.getLong(eanKeysPos + 8 * i) == key; i++) {
+            int record = index.getInt(eanRecordsPos + 4 * i);
+            // Leading zeros are lost in the key
+            if (textEquals(record, EAN_FIELD, ean)) {
+                records[found++] = record;
+            }
+        }
+        return found;
+    }
+
+    public String internalId(int record) {
+        return text(record, 0);
+    }
+
+    public Product product(int record) {
+        ByteBuffer segment = segment(record);
+        int pos = position(record);
+        long id = segment.getLong(pos);
+        long updatedAt = segment.getLong(pos + 8);
+        int stock = segment.getInt(pos + 16);
+        byte scale = segment.get(pos + 20);
+        pos += FIXED_BYTES;
+
+        BigDecimal price = null;
+        if (scale == PRICE_TEXT) {
+            price = new BigDecimal(readText(segment, pos));
+            pos += 2 + (segment.getShort(pos) & 0xFFFF);
+        } else if (scale != PRICE_NULL) {
+            price = BigDecimal.valueOf(segment.getLong(pos), scale);
+            pos += 8;
+        }
+
+        String[] text = new String[TEXT_FIELDS];
+        for (int field = 0; field < TEXT_FIELDS; field++) {
+            text[field] = readText(segment, pos);
+            int length = segment.getShort(pos) & 0xFFFF;
+            pos += 2 + (length == NULL_LENGTH ? 0 : length);
+        }
+        return Product.builder()
+                .id(id)
+                .internalId(text[0])
+                .name(text[1])
+                .description(text[2])
+                .brand(text[3])
+                .category(text[4])
+                .currency(text[5])
+                .ean(text[6])
+                .color(text[7])
+                .size(text[8])
+                .availability(text[9])
+                .price(price)
+                .stock(stock == NULL_INT ? null : stock)
+                .updatedAt(updatedAt == NULL_LONG ? null : fromMicros(updatedAt))
+                .build();
+    }
+
+    /**
+     * Key of an EAN in the EAN table: its numeric value, or -1 if it is not 1 to 18 digits.
+     */
+    public static long eanKey(CharSequence ean) {
+        int length = ean.length();
+        if (length == 0 || length > 18) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = ean.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer.
+     */
+    public static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Timestamps are stored as microseconds since the epoch, read as UTC.
+     */
+    public static long toMicros(LocalDateTime value) {
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), value);
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1000, ZoneOffset.UTC);
+    }
+
+    private int lowerBound(int keysPos, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index.getLong(keysPos + 8 * middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private ByteBuffer segment(int record) {
+        return segments[(int) (index.getLong(offsetsPos + 8 * record) >>> SEGMENT_BITS)];
+    }
+
+    private int position(int record) {
+        return (int) (index.getLong(offsetsPos + 8 * record) & SEGMENT_MASK);
+    }
+
+    // Position of a text field within the record
+    private int fieldPosition(ByteBuffer segment, int record, int field) {
+        int pos = position(record);
+        byte scale = segment.get(pos + 20);
+        pos += FIXED_BYTES;
+        if (scale == PRICE_TEXT) {
+            pos += 2 + (segment.getShort(pos) & 0xFFFF);
+        } else if (scale != PRICE_NULL) {
+            pos += 8;
+        }
+        for (int i = 0; i < field; i++) {
+            int length = segment.getShort(pos) & 0xFFFF;
+            pos += 2 + (length == NULL_LENGTH ? 0 : length);
+        }
+        return pos;
+    }
+
+    private String text(int record, int field) {
+        ByteBuffer segment = segment(record);
+        return readText(segment, fieldPosition(segment, record, field));
+    }
+
+    private static String readText(ByteBuffer segment, int pos) {
+        int length = segment.getShort(pos) & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        segment.get(pos + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a UTF-8 text field with a char sequence without decoding it into a String.
+     */
+    private boolean textEquals(int record, int field, CharSequence expected) {
+        ByteBuffer segment = segment(record);
+        int pos = fieldPosition(segment, record, field);
+        int length = segment.getShort(pos) & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return false;
+        }
+        pos += 2;
+        int end = pos + length;
+        int i = 0;
+        int n = expected.length();
+        while (pos < end) {
+            int b = segment.get(pos) & 0xFF;
+            int codePoint;
+            if (b < 0x80) {
+                codePoint = b;
+                pos += 1;
+            } else if (b < 0xE0) {
+                codePoint = (b & 0x1F) << 6 | segment.get(pos + 1) & 0x3F;
+                pos += 2;
+            } else if (b < 0xF0) {
+                codePoint = (b & 0x0F) << 12 | (segment.get(pos + 1) & 0x3F) << 6 | segment.get(pos + 2) & 0x3F;
+                pos += 3;
+            } else {
+                codePoint = (b & 0x07) << 18 | (segment.get(pos + 1) & 0x3F) << 12
+                        | (segment.get(pos + 2) & 0x3F) << 6 | segment.get(pos + 3) & 0x3F;
+                pos += 4;
+            }
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (i >= n || expected.charAt(i++) != codePoint) {
+                    return false;
+                }
+            } else if (i + 1 >= n || expected.charAt(i++) != Character.highSurrogate(codePoint)
+                    || expected.charAt(i++) != Character.lowSurrogate(codePoint)) {
+                return false;
+            }
+        }
+        return i == n;
+    }
+}
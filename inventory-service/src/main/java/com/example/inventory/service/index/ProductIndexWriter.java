@@ -0,0 +1,265 @@
+package com.example.inventory.service.index;
+
+import com.example.inventory.entity.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static com.example.inventory.service.index.ProductIndex.*;
+
+/**
+ * Writes a {@link ProductIndex} into an empty directory. Records are streamed to disk as they are
+ * added; only the key tables are kept on the heap until {@link #finish()} sorts and writes them.
+ */
+public final class ProductIndexWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final FileChannel records;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer record = ByteBuffer.allocate(64 * 1024);
+    private long position;
+
+    private long[] offsets = new long[1024];
+    private int count;
+    private long[] eanKeys = new long[1024];
+    private int[] eanRecords = new int[1024];
+    private int eanCount;
+    private long[] idKeys = new long[1024];
+    private int[] idRecords = new int[1024];
+    private long maxUpdatedAt = NULL_LONG;
+
+    public ProductIndexWriter(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        records = FileChannel.open(directory.resolve(RECORDS_FILE), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+    }
+
+    public void add(Product product) throws IOException {
+        encode(product);
+        int length = record.remaining();
+        // Records never straddle a mapped segment
+        long segmentLeft = (1L << SEGMENT_BITS) - (position & SEGMENT_MASK);
+        if (length > segmentLeft) {
+            pad((int) segmentLeft);
+        }
+        if (buffer.remaining() < length) {
+            flush();
+        }
+
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            idKeys = Arrays.copyOf(idKeys, count * 2);
+            idRecords = Arrays.copyOf(idRecords, count * 2);
+        }
+        offsets[count] = position;
+        idKeys[count] = hash(product.getInternalId());
+        idRecords[count] = count;
+
+        long ean = product.getEan() == null ? -1 : eanKey(product.getEan());
+        if (ean >= 0) {
+            if (eanCount == eanKeys.length) {
+                eanKeys = Arrays.copyOf(eanKeys, eanCount * 2);
+                eanRecords = Arrays.copyOf(eanRecords, eanCount * 2);
+            }
+            eanKeys[eanCount] = ean;
+            eanRecords[eanCount++] = count;
+        }
+        if (product.getUpdatedAt() != null) {
+            maxUpdatedAt = Math.max(maxUpdatedAt, toMicros(product.getUpdatedAt()));
+        }
+
+        buffer.put(record);
+        position += length;
+        count++;
+    }
+
+    /**
+     * Writes the key tables and forces both files to disk.
+     */
+    public void finish() throws IOException {
+        flush();
+        records.force(true);
+
+        // Equal keys keep record order, which is id order, because records are added in id order
+        sort(idKeys, idRecords, 0, count);
+        sort(eanKeys, eanRecords, 0, eanCount);
+
+        long size = HEADER_BYTES + 8L * count + 12L * eanCount + 12L * count;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Product index for " + count + " products is too large to map");
+        }
+        try (FileChannel index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(eanCount).putInt(count).putInt(0)
+                    .putLong(maxUpdatedAt).putLong(toMicros(LocalDateTime.now())).flip();
+            write(index, header);
+            writeLongs(index, offsets, count);
+            writeLongs(index, eanKeys, eanCount);
+            writeInts(index, eanRecords, eanCount);
+            writeLongs(index, idKeys, count);
+            writeInts(index, idRecords, count);
+            index.force(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.close();
+    }
+
+    private void encode(Product product) throws IOException {
+        record.clear();
+        record.putLong(product.getId());
+        record.putLong(product.getUpdatedAt() == null ? NULL_LONG : toMicros(product.getUpdatedAt()));
+        record.putInt(product.getStock() == null ? NULL_INT : product.getStock());
+
+        BigDecimal price = product.getPrice();
+        if (price == null) {
+            record.put(PRICE_NULL);
+        } else {
+            BigDecimal normalized = price.scale() < 0 ? price.setScale(0) : price;
+            if (normalized.scale() <= Byte.MAX_VALUE && normalized.unscaledValue().bitLength() < 64) {
+                record.put((byte) normalized.scale());
+                record.putLong(normalized.unscaledValue().longValue());
+            } else {
+                record.put(PRICE_TEXT);
+                putText(normalized.toPlainString());
+            }
+        }
+
+        putText(product.getInternalId());
+        putText(product.getName());
+        putText(product.getDescription());
+        putText(product.getBrand());
+        putText(product.getCategory());
+        putText(product.getCurrency());
+        putText(product.getEan());
+        putText(product.getColor());
+        putText(product.getSize());
+        putText(product.getAvailability());
+        record.flip();
+    }
+
+    private void putText(String value) throws IOException {
+        if (value == null) {
+            record.putShort((short) NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_LENGTH || bytes.length + 2 > record.remaining()) {
+            throw new IOException("Product field of " + bytes.length + " bytes is too long to index");
+        }
+        record.putShort((short) bytes.length);
+        record.put(bytes);
+    }
+
+    private void pad(int length) throws IOException {
+        flush();
+        write(records, ByteBuffer.allocate(length));
+        position += length;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        write(records, buffer);
+        buffer.clear();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void writeLongs(FileChannel channel, long[] values, int length) throws IOException {
+        buffer.clear();
+        for (int i = 0; i < length; i++) {
+            if (buffer.remaining() < 8) {
+                flushTo(channel);
+            }
+            buffer.putLong(values[i]);
+        }
+        flushTo(channel);
+    }
+
+    private void writeInts(FileChannel channel, int[] values, int length) throws IOException {
+        buffer.clear();
+        for (int i = 0; i < length; i++) {
+            if (buffer.remaining() < 4) {
+                flushTo(channel);
+            }
+            buffer.putInt(values[i]);
+        }
+        flushTo(channel);
+    }
+
+    private void flushTo(FileChannel channel) throws IOException {
+        buffer.flip();
+        write(channel, buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Sorts parallel key/value arrays by key, then value. A primitive quicksort: boxing 2M pairs
+     * to sort them with a comparator would cost more than the sort itself.
+     */
+    static void sort(long[] keys, int[] values, int from, int to) {
+        while (to - from > 16) {
+            int middle = (from + to) >>> 1;
+            long pivotKey = keys[middle];
+            int pivotValue = values[middle];
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) {
+                    i++;
+                }
+                while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // Recurse into the smaller side to bound the stack depth
+            if (j - from < to - i) {
+                sort(keys, values, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(keys[j], values[j], keys[j - 1], values[j - 1]) < 0; j--) {
+                swap(keys, values, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(long key, int value, long otherKey, int otherValue) {
+        int byKey = Long.compare(key, otherKey);
+        return byKey != 0 ? byKey : Integer.compare(value, otherValue);
+    }
+
+    private static void swap(long[] keys, int[] values, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.inventory.service.source;
+
+import com.example.inventory.service.csv.ProductCsvParser;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Import source formats and the readers that decode them.
+ * <p>
+ * The record format comes from the file name ({@code .ndjson} or {@code .jsonl}, otherwise CSV)
+ * or the request's content type; compression is always detected from the content's magic bytes,
+ * so a mislabelled file still decodes. Source offsets count decoded bytes.
+ */
+public final class ImportSource {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int ZSTD_MAGIC = 0xFD2FB528;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public enum Compression {
+        NONE, GZIP, ZSTD
+    }
+
+    public record Type(Format format, Compression compression) {
+
+        /**
+         * @return whether the source is uncompressed CSV, which can be memory-mapped and split
+         */
+        public boolean plainCsv() {
+            return format == Format.CSV && compression == Compression.NONE;
+        }
+    }
+
+    private ImportSource() {
+    }
+
+    public static Format formatOf(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (String suffix : new String[]{".gz", ".gzip", ".zst", ".zstd"}) {
+            if (name.endsWith(suffix)) {
+                name = name.substring(0, name.length() - suffix.length());
+                break;
+            }
+        }
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? Format.NDJSON : Format.CSV;
+    }
+
+    public static Type detect(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 4)) {
+            return new Type(formatOf(path.getFileName().toString()), compressionOf(in));
+        }
+    }
+
+    /**
+     * Peeks at the stream's first bytes without consuming them.
+     *
+     * @param in a stream that supports mark and reset
+     */
+    public static Compression compressionOf(InputStream in) throws IOException {
+        in.mark(4);
+        byte[] magic = in.readNBytes(4);
+        in.reset();
+        if (magic.length >= 2 && (magic[0] & 0xFF) == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+                && (magic[1] & 0xFF) == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+            return Compression.GZIP;
+        }
+        if (magic.length == 4 && ((magic[0] & 0xFF) | (magic[1] & 0xFF) << 8 | (magic[2] & 0xFF) << 16
+                | (magic[3] & 0xFF) << 24) == ZSTD_MAGIC) {
+            return Compression.ZSTD;
+        }
+        return Compression.NONE;
+    }
+
+    /**
+     * Opens the file's decoded content.
+     */
+    public static InputStream open(Path path) throws IOException {
+        return decode(Files.newInputStream(path));
+    }
+
+    /**
+     * Decodes the stream with the compression detected from its content.
+     */
+    public static InputStream decode(InputStream raw) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(raw, READ_BUFFER_SIZE);
+        try {
+            return switch (compressionOf(buffered)) {
+                case GZIP -> new GZIPInputStream(buffered, READ_BUFFER_SIZE);
+                case ZSTD -> new ZstdInputStream(buffered);
+                case NONE -> buffered;
+            };
+        } catch (IOException | RuntimeException e) {
+            buffered.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the stream on its own thread when it is compressed, so decompression runs
+     * alongside the parsing of the blocks before it.
+     */
+    public static InputStream decodePipelined(InputStream raw, String threadName) throws IOException {
+        InputStream decoded = decode(raw);
+        return decoded instanceof BufferedInputStream ? decoded : new PipelinedInputStream(decoded, threadName);
+    }
+
+    /**
+     * @param in decoded content, positioned at a record boundary
+     * @param startOffset offset of the stream's first byte in the decoded source
+     * @param header the CSV header, or null to read it from the stream; ignored for NDJSON
+     */
+    public static ProductRecordParser parser(Format format, InputStream in, long startOffset, String[] header)
+            throws IOException {
+        if (format == Format.NDJSON) {
+            return new ProductNdjsonParser(in, startOffset);
+        }
+        ProductCsvParser parser = new ProductCsvParser(in, startOffset);
+        if (header == null) {
+            parser.readHeader();
+        } else {
+            parser.useHeader(header);
+        }
+        return parser;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.inventory.service.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads its source on a dedicated thread, a block ahead of the consumer.
+ * <p>
+ * Wrapped around a decompressing stream, this moves decompression off the parsing thread, so
+ * inflating the next blocks overlaps with parsing and publishing the current one. A fixed set of
+ * blocks circulates between the two threads, so nothing is allocated per block and the reader
+ * never runs more than that many blocks ahead.
+ */
+public final class PipelinedInputStream extends InputStream {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int BLOCKS = 4;
+    private static final long READER_JOIN_TIMEOUT_MS = 5000;
+
+    private final InputStream source;
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(BLOCKS + 1);
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(BLOCKS);
+    private final Thread reader;
+
+    private Block current;
+    private int position;
+    private boolean closed;
+
+    private static final class Block {
+        private final byte[] data;
+        private int length;
+        // Set on the last block: end of input, or the failure that ended it
+        private boolean last;
+        private IOException failure;
+
+        Block(int size) {
+            data = new byte[size];
+        }
+    }
+
+    public PipelinedInputStream(InputStream source, String threadName) {
+        this.source = source;
+        for (int i = 0; i < BLOCKS; i++) {
+            free.add(new Block(BLOCK_SIZE));
+        }
+        reader = new Thread(this::readAhead, threadName);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readAhead() {
+        try {
+            while (true) {
+                Block block = free.take();
+                try {
+                    block.length = source.readNBytes(block.data, 0, block.data.length);
+                    block.last = block.length < block.data.length;
+                } catch (IOException e) {
+                    block.length = 0;
+                    block.last = true;
+                    block.failure = e;
+                }
+                filled.put(block);
+                if (block.last) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed by the consumer
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0 || !nextBlock()) {
+            return length == 0 ? 0 : -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current.data, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    // Skips without copying, for resuming past a checkpoint
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || !nextBlock()) {
+            return 0;
+        }
+        int count = (int) Math.min(n, current.length - position);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    /**
+     * Waits until the current block has unread bytes.
+     *
+     * @return false at the end of input
+     */
+    private boolean nextBlock() throws IOException {
+        while (current == null || position == current.length) {
+            if (current != null) {
+                if (current.last) {
+                    if (current.failure != null) {
+                        throw new IOException("Failed to read import source", current.failure);
+                    }
+                    return false;
+                }
+                free.add(current);
+            }
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the import source");
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Closes the source first, so a read the reader thread is blocked in fails instead of running to
+     * completion, then waits a bounded time for the reader to exit.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            source.close();
+        } finally {
+            reader.interrupt();
+            try {
+                reader.join(READER_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.inventory.service.source;
+
+import com.example.inventory.messaging.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Parser for NDJSON product feeds: one JSON object per line, with the property names of
+ * {@link ProductDTO} ({@code internalId}, {@code name}, {@code price}, ...). Unknown properties
+ * are ignored. Lines are found by scanning bytes in a reusable buffer, and only a line's own bytes
+ * are handed to Jackson, so a malformed line fails alone.
+ */
+public final class ProductNdjsonParser implements ProductRecordParser {
+
+    private static final byte LF = '\n';
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final ObjectReader PRODUCT_READER = new ObjectMapper()
+            .readerFor(ProductDTO.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final InputStream in;
+
+    private byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+    private int limit;
+    private int position;
+    private boolean eof;
+    // Absolute source offset of buffer[0]
+    private long bufferOffset;
+
+    private int lineStart;
+    private int lineEnd;
+    private long recordStart = -1;
+
+    /**
+     * @param startOffset absolute offset of the stream's first byte in the source
+     */
+    public ProductNdjsonParser(InputStream in, long startOffset) {
+        this.in = in;
+        this.bufferOffset = startOffset;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            int newline = indexOf(LF, position);
+            if (newline < 0 && !eof) {
+                fill();
+                continue;
+            }
+            if (position >= limit) {
+                recordStart = -1;
+                return false;
+            }
+            int start = position;
+            int end = newline < 0 ? limit : newline;
+            position = newline < 0 ? limit : newline + 1;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (isBlank(start, end)) {
+                continue;
+            }
+            lineStart = start;
+            lineEnd = end;
+            recordStart = bufferOffset + start;
+            return true;
+        }
+    }
+
+    @Override
+    public long recordStart() {
+        return recordStart;
+    }
+
+    @Override
+    public long offset() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the line is not a JSON object of product properties
+     */
+    @Override
+    public ProductDTO product() {
+        ProductDTO product;
+        try {
+            product = PRODUCT_READER.readValue(buffer, lineStart, lineEnd - lineStart);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        if (product == null) {
+            throw new IllegalArgumentException("Record is null, not a product object");
+        }
+        // Set by the import, never by the feed
+        product.setRowNumber(null);
+        product.setSourceOffset(null);
+        product.setParseError(null);
+        return product;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int indexOf(byte value, int from) {
+        for (int i = from; i < limit; i++) {
+            if (buffer[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = buffer[i];
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it for lines longer than the
+     * buffer, and reads more input.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            bufferOffset += position;
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        limit = remaining;
+        position = 0;
+
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+}
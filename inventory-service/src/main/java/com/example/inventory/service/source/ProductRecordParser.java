@@ -0,0 +1,36 @@
+package com.example.inventory.service.source;
+
+import com.example.inventory.messaging.dto.ProductDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads product records one at a time from an import source, tracking the byte offset of each.
+ */
+public interface ProductRecordParser extends Closeable {
+
+    /**
+     * Advances to the next non-empty record.
+     *
+     * @return false at the end of the input
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Absolute source offset of the current record's first byte.
+     */
+    long recordStart();
+
+    /**
+     * Absolute source offset just past the last record read; at the end of the input, the end of the source.
+     */
+    long offset();
+
+    /**
+     * Builds the product from the current record.
+     *
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    ProductDTO product();
+}
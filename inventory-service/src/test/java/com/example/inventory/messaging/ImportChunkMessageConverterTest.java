@@ -0,0 +1,181 @@
+package com.example.inventory.messaging;
+
+import com.example.inventory.entity.ImportJob;
+import com.example.inventory.messaging.dto.ImportChunkEvent;
+import com.example.inventory.messaging.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportChunkMessageConverterTest {
+
+    private final ImportChunkMessageConverter converter = new ImportChunkMessageConverter();
+
+    @Test
+    void roundTripsChunk() {
+        ProductDTO full = ProductDTO.builder()
+                .rowNumber(1L)
+                .sourceOffset(120L)
+                .internalId("PROD-1")
+                .name("Café \"Deluxe\", 1kg")
+                .description("Line one\r\nline two")
+                .brand("Acme")
+                .category("Coffee")
+                .price(new BigDecimal("-12.5"))
+                .currency("EUR")
+                .stock(-3)
+                .ean("4006381333931")
+                .color("Brown")
+                .size("1kg")
+                .availability("In Stock")
+                .build();
+        ProductDTO empty = ProductDTO.builder()
+                .rowNumber(2L)
+                .sourceOffset(190L)
+                .internalId("")
+                .price(BigDecimal.ZERO)
+                .stock(0)
+                .build();
+        ProductDTO failed = ProductDTO.builder()
+                .rowNumber(3L)
+                .sourceOffset(150L)
+                .parseError("Invalid price: \"abc\"")
+                .build();
+        ProductDTO highScale = ProductDTO.builder()
+                .rowNumber(4L)
+                .sourceOffset(400L)
+                .internalId("PROD-4")
+                .price(new BigDecimal("0.000000001"))
+                .currency("EUR")
+                .build();
+        ImportChunkEvent event = chunk(List.of(full, empty, failed, highScale));
+
+        ImportChunkEvent decoded = roundTrip(event);
+
+        assertThat(decoded).usingRecursiveComparison().ignoringFields("products").isEqualTo(event);
+        assertThat(decoded.getProducts()).hasSize(4);
+        assertThat(decoded.getProducts().get(0)).usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class).isEqualTo(full);
+        assertThat(decoded.getProducts().get(1)).usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class).isEqualTo(empty);
+        assertThat(decoded.getProducts().get(2)).usingRecursiveComparison().isEqualTo(failed);
+        assertThat(decoded.getProducts().get(3).getPrice()).isEqualByComparingTo("0.000000001");
+        // Prices share the column's scale
+        assertThat(decoded.getProducts().get(0).getPrice()).isEqualTo(new BigDecimal("-12.500000000"));
+    }
+
+    @Test
+    void roundTripsPricesBeyondLongRange() {
+        BigDecimal huge = new BigDecimal("-123456789012345678901234567890.123456789");
+        ProductDTO product = ProductDTO.builder().rowNumber(1L).sourceOffset(0L).price(huge).build();
+        ProductDTO none = ProductDTO.builder().rowNumber(2L).sourceOffset(10L).build();
+
+        ImportChunkEvent decoded = roundTrip(chunk(List.of(product, none)));
+
+        assertThat(decoded.getProducts().get(0).getPrice()).isEqualTo(huge);
+        assertThat(decoded.getProducts().get(1).getPrice()).isNull();
+    }
+
+    @Test
+    void roundTripsEmptyChunk() {
+        ImportChunkEvent event = chunk(List.of());
+        event.setMode(null);
+
+        ImportChunkEvent decoded = roundTrip(event);
+
+        assertThat(decoded.getProducts()).isEmpty();
+        assertThat(decoded.getMode()).isNull();
+        assertThat(decoded.getStartOffset()).isEqualTo(event.getStartOffset());
+    }
+
+    @Test
+    void roundTripsEndOfStreamMarker() {
+        ImportChunkEvent marker = ImportChunkEvent.builder()
+                .jobId("job-1")
+                .chunkNumber(42)
+                .mode(ImportJob.ImportMode.REPLACE)
+                .attempt(2)
+                .publishedAt(1_700_000_000_000L)
+                .products(List.of())
+                .endOfStream(true)
+                .expectedChunks(42)
+                .totalRows(41_999L)
+                .build();
+
+        assertThat(roundTrip(marker)).usingRecursiveComparison().isEqualTo(marker);
+    }
+
+    @Test
+    void rejectsOtherFormatVersions() {
+        Message message = converter.toMessage(chunk(List.of()), new MessageProperties());
+        byte[] body = message.getBody();
+
+        for (byte version : new byte[]{1, 5, (byte) (body[2] + 1)}) {
+            body[2] = version;
+            assertThatThrownBy(() -> converter.fromMessage(message))
+                    .isInstanceOf(MessageConversionException.class)
+                    .hasMessageContaining("version: " + version);
+        }
+    }
+
+    @Test
+    void rejectsTruncatedMessage() {
+        ProductDTO product = ProductDTO.builder().rowNumber(1L).sourceOffset(0L).internalId("PROD-1").build();
+        Message message = converter.toMessage(chunk(List.of(product)), new MessageProperties());
+        Message truncated = new Message(Arrays.copyOf(message.getBody(), message.getBody().length - 1),
+                message.getMessageProperties());
+
+        assertThatThrownBy(() -> converter.fromMessage(truncated))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("Truncated");
+    }
+
+    @Test
+    void rejectsForeignBody() {
+        Message message = converter.toMessage(chunk(List.of()), new MessageProperties());
+        message.getBody()[0] = '{';
+
+        assertThatThrownBy(() -> converter.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("Not an import chunk");
+    }
+
+    @Test
+    void rejectsJsonChunks() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        Message message = new Message("{\"jobId\":\"job-1\",\"chunkNumber\":7}".getBytes(), properties);
+
+        assertThatThrownBy(() -> converter.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("content type");
+    }
+
+    private ImportChunkEvent roundTrip(ImportChunkEvent event) {
+        Message message = converter.toMessage(event, new MessageProperties());
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo(ImportChunkMessageConverter.CONTENT_TYPE);
+        return (ImportChunkEvent) converter.fromMessage(message);
+    }
+
+    private static ImportChunkEvent chunk(List<ProductDTO> products) {
+        return ImportChunkEvent.builder()
+                .jobId("job-1")
+                .chunkNumber(7)
+                .mode(ImportJob.ImportMode.DELTA)
+                .attempt(3)
+                .publishedAt(1_700_000_000_000L)
+                .startOffset(120L)
+                .endOffset(4_096L)
+                .products(new ArrayList<>(products))
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The columns of the catalog, inventory and import ledger tables that the set-based writers touch.
+ */
+final class CatalogSchema {
+
+    private CatalogSchema() {
+    }
+
+    static void create(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS products, inventory_items, import_jobs, import_chunks");
+        jdbcTemplate.execute("CREATE TABLE products (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "internal_id varchar(255), name varchar(255), stock integer, "
+                + "CONSTRAINT uk_product_internal_id UNIQUE (internal_id))");
+        jdbcTemplate.execute("CREATE TABLE inventory_items (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "product_id varchar(255) NOT NULL UNIQUE, product_name varchar(255) NOT NULL, "
+                + "available_quantity integer NOT NULL, reserved_quantity integer NOT NULL, "
+                + "updated_at timestamp NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE import_jobs (id varchar(255) PRIMARY KEY, attempt integer)");
+        jdbcTemplate.execute("CREATE TABLE import_chunks (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "job_id varchar(255) NOT NULL, start_offset bigint NOT NULL, inserted_rows bigint, "
+                + "UNIQUE (job_id, start_offset))");
+    }
+
+    /**
+     * Records a job with one finished chunk that copied {@code rows} rows into its staging table.
+     */
+    static void recordJob(JdbcTemplate jdbcTemplate, String jobId, int attempt, long rows) {
+        jdbcTemplate.update("INSERT INTO import_jobs (id, attempt) VALUES (?, ?)", jobId, attempt);
+        jdbcTemplate.update("INSERT INTO import_chunks (job_id, start_offset, inserted_rows) VALUES (?, 0, ?)",
+                jobId, rows);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.inventory.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryStockWriterTest {
+
+    private static final String JOB_ID = "job-1";
+
+    private static EmbeddedPostgres postgres;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private InventoryStockWriter inventoryStockWriter;
+    private ProductStagingTable productStagingTable;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createTables() {
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        inventoryStockWriter = new InventoryStockWriter(jdbcTemplate);
+        productStagingTable = new ProductStagingTable(jdbcTemplate, null);
+
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + ProductStagingTable.tableName(JOB_ID));
+        CatalogSchema.create(jdbcTemplate);
+
+        jdbcTemplate.update("INSERT INTO products (internal_id, name, stock) VALUES "
+                + "('PROD-A', 'Lamp', 5), ('PROD-B', 'Desk', 7)");
+        jdbcTemplate.update("INSERT INTO inventory_items "
+                + "(product_id, product_name, available_quantity, reserved_quantity, updated_at) VALUES "
+                + "('PROD-A', 'Lamp', 5, 0, LOCALTIMESTAMP), ('PROD-B', 'Desk', 6, 1, LOCALTIMESTAMP), "
+                + "('PROD-001', 'Laptop', 100, 2, LOCALTIMESTAMP)");
+    }
+
+    @Test
+    void replacedCatalogRetiresOnlyItsDroppedProducts() {
+        productStagingTable.create(JOB_ID);
+        jdbcTemplate.update("INSERT INTO " + ProductStagingTable.tableName(JOB_ID) + " (internal_id, name, stock) "
+                + "VALUES ('PROD-A', 'Lamp', 3), ('PROD-C', 'Chair', 4)");
+        CatalogSchema.recordJob(jdbcTemplate, JOB_ID, 1, 2);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryStockWriter.retireReplaced(ProductStagingTable.tableName(JOB_ID));
+            productStagingTable.swapIn(JOB_ID);
+            inventoryStockWriter.syncCatalog();
+        });
+
+        assertThat(available()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "PROD-A", 3,
+                "PROD-B", 0,
+                "PROD-C", 4,
+                "PROD-001", 100));
+        assertThat(jdbcTemplate.queryForObject("SELECT reserved_quantity FROM inventory_items "
+                + "WHERE product_id = 'PROD-B'", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void emptyReplacementLeavesItemsOutsideTheCatalogAlone() {
+        productStagingTable.create(JOB_ID);
+        CatalogSchema.recordJob(jdbcTemplate, JOB_ID, 1, 0);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryStockWriter.retireReplaced(ProductStagingTable.tableName(JOB_ID));
+            productStagingTable.swapIn(JOB_ID);
+            inventoryStockWriter.syncCatalog();
+        });
+
+        assertThat(available()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "PROD-A", 0,
+                "PROD-B", 0,
+                "PROD-001", 100));
+    }
+
+    private Map<String, Integer> available() {
+        return jdbcTemplate.queryForList("SELECT product_id, available_quantity FROM inventory_items").stream()
+                .collect(Collectors.toMap(row -> (String) row.get("product_id"),
+                        row -> (Integer) row.get("available_quantity")));
+    }
+}
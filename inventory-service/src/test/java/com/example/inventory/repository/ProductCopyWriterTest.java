@@ -0,0 +1,170 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.entity.Product;
+import com.example.inventory.entity.ProductAttribute;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductCopyWriterTest {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "0.00", "1", "-1", "12.5", "-12.50", "0.0001", "-0.00001", "9999", "10000",
+            "10000.0001", "123456789.123456789", "3.14159265358979323846264338327950288",
+            "-99999999999999999999999999.99", "1E+7", "-2.5E+9", "0.000000000000000000001"})
+    void numericRoundTrips(String literal) throws IOException {
+        BigDecimal value = new BigDecimal(literal);
+
+        BigDecimal decoded = readNumeric(new DataInputStream(new ByteArrayInputStream(numeric(value))));
+
+        assertThat(decoded).isEqualByComparingTo(value);
+        assertThat(decoded.scale()).isEqualTo(Math.max(value.scale(), 0));
+    }
+
+    @Test
+    void nullNumericIsWrittenAsNullField() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(numeric(null)));
+
+        assertThat(in.readInt()).isEqualTo(-1);
+        assertThat(in.available()).isZero();
+    }
+
+    @Test
+    void zeroHasNoDigits() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(numeric(new BigDecimal("0.000"))));
+
+        assertThat(in.readInt()).isEqualTo(8);
+        assertThat(in.readShort()).isZero(); // ndigits
+        assertThat(in.readShort()).isZero(); // weight
+        assertThat(in.readShort()).isZero(); // sign
+        assertThat(in.readShort()).isEqualTo((short) 3); // display scale
+    }
+
+    @Test
+    void encodesRowsInCopyBinaryFormat() throws IOException {
+        ProductAttributeDictionary dictionary = mock(ProductAttributeDictionary.class);
+        when(dictionary.ids(any(), any())).thenReturn(new Integer[]{null, null});
+        when(dictionary.ids(eq(ProductAttribute.Kind.BRAND), any())).thenReturn(new Integer[]{7, null});
+        ProductCopyWriter writer = new ProductCopyWriter(null, dictionary);
+
+        Product full = Product.builder()
+                .internalId("PROD-1")
+                .name("Café \"Deluxe\", 1kg")
+                .description("Line one\nline two")
+                .brand("Acme")
+                .price(new BigDecimal("-12.34"))
+                .stock(-3)
+                .ean("4006381333931")
+                .contentHash(Long.MIN_VALUE)
+                .build();
+        Product sparse = Product.builder()
+                .internalId("PROD-2")
+                .name("")
+                .build();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(writer.encode(List.of(full, sparse))));
+
+        assertThat(in.readNBytes(SIGNATURE.length)).isEqualTo(SIGNATURE);
+        assertThat(in.readInt()).isZero(); // flags
+        assertThat(in.readInt()).isZero(); // header extension
+
+        assertThat(in.readShort()).isEqualTo((short) 15);
+        assertThat(readText(in)).isEqualTo("PROD-1");
+        assertThat(readText(in)).isEqualTo("Café \"Deluxe\", 1kg");
+        assertThat(readText(in)).isEqualTo("Line one\nline two");
+        assertThat(readInt(in)).isEqualTo(7); // brand
+        assertThat(readInt(in)).isNull(); // category
+        assertThat(readNumeric(in)).isEqualTo(new BigDecimal("-12.34"));
+        assertThat(readInt(in)).isNull(); // currency
+        assertThat(readInt(in)).isEqualTo(-3);
+        assertThat(readText(in)).isEqualTo("4006381333931");
+        assertThat(readInt(in)).isNull(); // color
+        assertThat(readInt(in)).isNull(); // size
+        assertThat(readInt(in)).isNull(); // availability
+        assertThat(in.readInt()).isEqualTo(8);
+        assertThat(in.readLong()).isEqualTo(Long.MIN_VALUE);
+        skipField(in); // created_at
+        skipField(in); // updated_at
+
+        assertThat(in.readShort()).isEqualTo((short) 15);
+        assertThat(readText(in)).isEqualTo("PROD-2");
+        assertThat(readText(in)).isEmpty();
+        assertThat(readText(in)).isNull();
+        for (int field = 3; field < 13; field++) {
+            assertThat(in.readInt()).as("field %d", field).isEqualTo(-1);
+        }
+        skipField(in);
+        skipField(in);
+
+        assertThat(in.readShort()).isEqualTo((short) -1); // trailer
+        assertThat(in.available()).isZero();
+    }
+
+    private static byte[] numeric(BigDecimal value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProductCopyWriter.writeNumeric(new DataOutputStream(bytes), value);
+        return bytes.toByteArray();
+    }
+
+    // Decodes PostgreSQL's binary numeric: base-10000 digits, weight of the first digit, sign, display scale
+    private static BigDecimal readNumeric(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        int ndigits = in.readShort();
+        int weight = in.readShort();
+        int sign = in.readShort() & 0xFFFF;
+        int scale = in.readShort();
+        assertThat(length).isEqualTo(8 + 2 * ndigits);
+
+        BigDecimal value = BigDecimal.ZERO;
+        for (int i = 0; i < ndigits; i++) {
+            short digit = in.readShort();
+            assertThat(digit).isBetween((short) 0, (short) 9999);
+            value = value.add(BigDecimal.valueOf(digit).scaleByPowerOfTen(4 * (weight - i)));
+        }
+        assertThat(sign).isIn(0x0000, 0x4000);
+        if (sign == 0x4000) {
+            value = value.negate();
+        }
+        return value.setScale(scale);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static Integer readInt(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        assertThat(length).isEqualTo(4);
+        return in.readInt();
+    }
+
+    private static void skipField(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        assertThat(length).isEqualTo(8);
+        in.skipNBytes(length);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.inventory.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductInternalIdMigrationTest {
+
+    private static EmbeddedPostgres postgres;
+
+    private JdbcTemplate jdbcTemplate;
+    private ProductInternalIdMigration migration;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createTables() {
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        migration = new ProductInternalIdMigration(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+
+        // A table the schema update could not add the constraint to
+        CatalogSchema.create(jdbcTemplate);
+        jdbcTemplate.execute("ALTER TABLE products DROP CONSTRAINT uk_product_internal_id");
+        jdbcTemplate.update("INSERT INTO products (internal_id, name, stock) VALUES "
+                + "('PROD-A', 'Lamp', 1), ('PROD-B', 'Desk', 2), ('PROD-A', 'Lamp v2', 3), ('PROD-A', 'Lamp v3', 4), "
+                + "(NULL, 'Unnamed', 5), (NULL, 'Unnamed', 6)");
+    }
+
+    @Test
+    void keepsLatestRowOfEachInternalIdAndAddsConstraint() {
+        migration.migrate();
+
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM products ORDER BY id", String.class))
+                .containsExactly("Desk", "Lamp v3", "Unnamed", "Unnamed");
+        assertThatThrownBy(() -> jdbcTemplate.update(
+                "INSERT INTO products (internal_id, name) VALUES ('PROD-B', 'Desk again')"))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void leavesConstrainedTableAlone() {
+        migration.migrate();
+        jdbcTemplate.update("INSERT INTO products (internal_id, name) VALUES ('PROD-C', 'Chair')");
+
+        migration.migrate();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM products", Integer.class)).isEqualTo(5);
+    }
+}
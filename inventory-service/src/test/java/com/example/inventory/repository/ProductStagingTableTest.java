@@ -0,0 +1,100 @@
+package com.example.inventory.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductStagingTableTest {
+
+    private static final String JOB_ID = "job-1";
+
+    private static EmbeddedPostgres postgres;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ProductStagingTable productStagingTable;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createTables() {
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        productStagingTable = new ProductStagingTable(jdbcTemplate, null);
+
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + ProductStagingTable.tableName(JOB_ID));
+        CatalogSchema.create(jdbcTemplate);
+        jdbcTemplate.update("INSERT INTO products (internal_id, name, stock) VALUES ('PROD-A', 'Lamp', 5)");
+        productStagingTable.create(JOB_ID);
+    }
+
+    @Test
+    void swapsInDeduplicatedCatalog() {
+        stage("('PROD-A', 'Old lamp', 1), ('PROD-B', 'Desk', 2), ('PROD-A', 'Lamp', 3)");
+        CatalogSchema.recordJob(jdbcTemplate, JOB_ID, 1, 3);
+
+        Integer duplicates = transactionTemplate.execute(status -> productStagingTable.swapIn(JOB_ID));
+
+        assertThat(duplicates).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM products ORDER BY internal_id", String.class))
+                .containsExactly("Lamp", "Desk");
+    }
+
+    @Test
+    void keepsProductsWhenStagedRowsWereLost() {
+        // Chunks recorded as done whose rows crash recovery removed from the unlogged table
+        stage("('PROD-B', 'Desk', 2)");
+        CatalogSchema.recordJob(jdbcTemplate, JOB_ID, 1, 3);
+
+        assertThatThrownBy(() -> transactionTemplate.execute(status -> productStagingTable.swapIn(JOB_ID)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("holds 1 rows");
+        assertThat(jdbcTemplate.queryForList("SELECT internal_id FROM products", String.class))
+                .containsExactly("PROD-A");
+    }
+
+    @Test
+    void rejectsRowsTheLedgerDoesNotKnowOnFirstAttempt() {
+        stage("('PROD-B', 'Desk', 2), ('PROD-C', 'Chair', 4)");
+        CatalogSchema.recordJob(jdbcTemplate, JOB_ID, 1, 1);
+
+        assertThatThrownBy(() -> transactionTemplate.execute(status -> productStagingTable.swapIn(JOB_ID)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void acceptsRowsReplayedByResumedAttempt() {
+        // The abandoned attempt staged a chunk past the checkpoint that the resumed one staged again
+        stage("('PROD-B', 'Desk', 2), ('PROD-B', 'Desk', 2), ('PROD-C', 'Chair', 4)");
+        CatalogSchema.recordJob(jdbcTemplate, JOB_ID, 2, 2);
+
+        Integer duplicates = transactionTemplate.execute(status -> productStagingTable.swapIn(JOB_ID));
+
+        assertThat(duplicates).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT internal_id FROM products ORDER BY internal_id", String.class))
+                .containsExactly("PROD-B", "PROD-C");
+    }
+
+    private void stage(String rows) {
+        jdbcTemplate.update("INSERT INTO " + ProductStagingTable.tableName(JOB_ID) + " (internal_id, name, stock) "
+                + "VALUES " + rows);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.inventory.service.csv;
+
+import com.example.inventory.messaging.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductCsvParserTest {
+
+    private static final String HEADER =
+            "Internal ID,Name,Description,Brand,Category,Price,Currency,Stock,EAN,Color,Size,Availability";
+
+    @Test
+    void parsesPlainRecords() throws IOException {
+        List<ProductDTO> products = parseAll(HEADER + "\n"
+                + "PROD-1,Laptop,Fast laptop,Acme,Computers,999.99,USD,10,4006381333931,Black,15-inch,In Stock\n"
+                + "PROD-2,Mouse,,Acme,Accessories,0,USD,0,,,,Out of Stock\n");
+
+        assertThat(products).hasSize(2);
+        ProductDTO laptop = products.get(0);
+        assertThat(laptop.getInternalId()).isEqualTo("PROD-1");
+        assertThat(laptop.getName()).isEqualTo("Laptop");
+        assertThat(laptop.getPrice()).isEqualTo(new BigDecimal("999.99"));
+        assertThat(laptop.getStock()).isEqualTo(10);
+        assertThat(laptop.getEan()).isEqualTo("4006381333931");
+        assertThat(laptop.getAvailability()).isEqualTo("In Stock");
+
+        ProductDTO mouse = products.get(1);
+        assertThat(mouse.getDescription()).isEmpty();
+        assertThat(mouse.getPrice()).isEqualTo(BigDecimal.ZERO);
+        assertThat(mouse.getStock()).isZero();
+        assertThat(mouse.getColor()).isEmpty();
+    }
+
+    @Test
+    void parsesQuotedFieldsWithDelimitersNewlinesAndEscapedQuotes() throws IOException {
+        List<ProductDTO> products = parseAll(HEADER + "\n"
+                + "PROD-1,\"Desk, oak\",\"Line one\nline two, \"\"quoted\"\"\",Acme,Furniture,10,EUR,1,,,,\n"
+                + "PROD-2,\"\"\"Leading\"\" quote\",\"\",Acme,Furniture,10,EUR,1,,,,\n");
+
+        assertThat(products).extracting(ProductDTO::getInternalId).containsExactly("PROD-1", "PROD-2");
+        assertThat(products.get(0).getName()).isEqualTo("Desk, oak");
+        assertThat(products.get(0).getDescription()).isEqualTo("Line one\nline two, \"quoted\"");
+        assertThat(products.get(1).getName()).isEqualTo("\"Leading\" quote");
+        assertThat(products.get(1).getDescription()).isEmpty();
+    }
+
+    @Test
+    void treatsQuoteInsideUnquotedFieldAsData() throws IOException {
+        List<ProductDTO> products = parseAll(HEADER + "\n"
+                + "PROD-1,12\" monitor,,Acme,Screens,1,USD,1,,,,\n"
+                + "PROD-2,Cable,,Acme,Screens,1,USD,1,,,,\n");
+
+        assertThat(products).extracting(ProductDTO::getName).containsExactly("12\" monitor", "Cable");
+    }
+
+    @Test
+    void handlesCrLfLineEndings() throws IOException {
+        String csv = HEADER + "\r\n"
+                + "PROD-1,Laptop,\"Two\r\nlines\",Acme,Computers,1.5,USD,2,,,,In Stock\r\n"
+                + "PROD-2,Mouse,,Acme,Computers,2.5,USD,3,,,,In Stock\r\n";
+
+        List<ProductDTO> products = parseAll(csv);
+
+        assertThat(products).extracting(ProductDTO::getInternalId).containsExactly("PROD-1", "PROD-2");
+        assertThat(products.get(0).getDescription()).isEqualTo("Two\r\nlines");
+        assertThat(products).extracting(ProductDTO::getAvailability).containsOnly("In Stock");
+        assertThat(products.get(1).getStock()).isEqualTo(3);
+    }
+
+    @Test
+    void skipsByteOrderMark() throws IOException {
+        List<ProductDTO> products = parseAll("﻿" + HEADER + "\nPROD-1,Laptop,,Acme,Computers,1,USD,1,,,,\n");
+
+        assertThat(products).extracting(ProductDTO::getInternalId).containsExactly("PROD-1");
+    }
+
+    @Test
+    void parsesLastRecordWithoutTrailingNewline() throws IOException {
+        List<ProductDTO> products = parseAll(HEADER + "\n"
+                + "PROD-1,Laptop,,Acme,Computers,1,USD,1,,,,\n"
+                + "PROD-2,Mouse,\"ends quoted\",Acme,Computers,2,USD,2,,,,Preorder");
+
+        assertThat(products).extracting(ProductDTO::getInternalId).containsExactly("PROD-1", "PROD-2");
+        assertThat(products.get(1).getAvailability()).isEqualTo("Preorder");
+    }
+
+    @Test
+    void skipsBlankLines() throws IOException {
+        List<ProductDTO> products = parseAll(HEADER + "\n\n"
+                + "PROD-1,Laptop,,Acme,Computers,1,USD,1,,,,\r\n\r\n\n"
+                + "PROD-2,Mouse,,Acme,Computers,2,USD,2,,,,\n\n");
+
+        assertThat(products).extracting(ProductDTO::getInternalId).containsExactly("PROD-1", "PROD-2");
+    }
+
+    @Test
+    void parsesNegativeZeroAndHighScaleNumbers() throws IOException {
+        List<ProductDTO> products = parseAll(HEADER + "\n"
+                + "P1,A,,B,C,-12.50,USD,-3,,,,\n"
+                + "P2,A,,B,C,0.000,USD,+0,,,,\n"
+                + "P3,A,,B,C,3.14159265358979323846,USD,2147483647,,,,\n"
+                + "P4,A,,B,C,1.5E+3,USD,-2147483648,,,,\n"
+                + "P5,A,,B,C, 7 ,USD, 8 ,,,,\n");
+
+        assertThat(products).extracting(ProductDTO::getPrice).containsExactly(new BigDecimal("-12.50"),
+                new BigDecimal("0.000"), new BigDecimal("3.14159265358979323846"), new BigDecimal("1.5E+3"),
+                new BigDecimal("7"));
+        assertThat(products).extracting(ProductDTO::getStock)
+                .containsExactly(-3, 0, Integer.MAX_VALUE, Integer.MIN_VALUE, 8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"P1,A,,B,C,,USD,1", "P1,A,,B,C,abc,USD,1", "P1,A,,B,C,1,USD,", "P1,A,,B,C,1,USD,2147483648",
+            "P1,A,,B,C,1,USD,1.5"})
+    void rejectsMalformedNumbers(String record) throws IOException {
+        try (ProductCsvParser parser = parser(HEADER + "\n" + record + ",,,,\n", 64 * 1024)) {
+            parser.readHeader();
+            assertThat(parser.next()).isTrue();
+            assertThatThrownBy(parser::product).isInstanceOf(NumberFormatException.class);
+        }
+    }
+
+    @Test
+    void rejectsRecordWithMissingColumns() throws IOException {
+        try (ProductCsvParser parser = parser(HEADER + "\nPROD-1,Laptop\n", 64 * 1024)) {
+            parser.readHeader();
+            assertThat(parser.next()).isTrue();
+            assertThatThrownBy(parser::product)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("missing column");
+        }
+    }
+
+    @Test
+    void matchesHeaderIgnoringCaseAndOrder() throws IOException {
+        List<ProductDTO> products = parseAll("stock,PRICE,internal id,name,description,brand,category,currency,"
+                + "ean,color,size,availability\n5,9.99,PROD-1,Laptop,,Acme,Computers,USD,,,,\n");
+
+        assertThat(products.get(0).getInternalId()).isEqualTo("PROD-1");
+        assertThat(products.get(0).getStock()).isEqualTo(5);
+        assertThat(products.get(0).getPrice()).isEqualTo(new BigDecimal("9.99"));
+    }
+
+    @Test
+    void reportsRecordOffsets() throws IOException {
+        String first = "PROD-1,\"Multi\nline\",,Acme,Computers,1,USD,1,,,,\r\n";
+        String csv = HEADER + "\n" + first + "PROD-2,Mouse,,Acme,Computers,2,USD,2,,,,";
+        long headerEnd = HEADER.length() + 1;
+
+        try (ProductCsvParser parser = parser(csv, 16)) {
+            parser.readHeader();
+            assertThat(parser.offset()).isEqualTo(headerEnd);
+            assertThat(parser.next()).isTrue();
+            assertThat(parser.recordStart()).isEqualTo(headerEnd);
+            assertThat(parser.next()).isTrue();
+            assertThat(parser.recordStart()).isEqualTo(headerEnd + first.length());
+            assertThat(parser.next()).isFalse();
+            assertThat(parser.offset()).isEqualTo(csv.length());
+        }
+    }
+
+    @Test
+    void parsesSameRecordsWithTinyBuffer() throws IOException {
+        String csv = "﻿" + HEADER + "\r\n"
+                + "PROD-1,\"Desk, \"\"oak\"\"\",\"Line one\r\nline two\",Acme,Furniture,-10.25,EUR,1,,,,\r\n"
+                + "\r\n"
+                + "PROD-2,Überlänge ☕,,Acme,Furniture,0,EUR,0,,,,In Stock";
+
+        List<ProductDTO> expected = parseAll(csv);
+        List<ProductDTO> tiny = parseAll(csv, 4);
+
+        assertThat(tiny).usingRecursiveFieldByFieldElementComparator().isEqualTo(expected);
+        assertThat(tiny).extracting(ProductDTO::getName).containsExactly("Desk, \"oak\"", "Überlänge ☕");
+    }
+
+    @Test
+    void parsesRangeStartingMidFile() throws IOException {
+        String record = "PROD-9,Lamp,,Acme,Lighting,3,USD,4,,,,\n";
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+
+        try (ProductCsvParser parser = new ProductCsvParser(new ByteArrayInputStream(bytes), 1000)) {
+            parser.useHeader(HEADER.split(","));
+            assertThat(parser.next()).isTrue();
+            assertThat(parser.recordStart()).isEqualTo(1000);
+            assertThat(parser.product().getInternalId()).isEqualTo("PROD-9");
+            assertThat(parser.next()).isFalse();
+            assertThat(parser.offset()).isEqualTo(1000 + bytes.length);
+        }
+    }
+
+    @Test
+    void readsEmptyInput() throws IOException {
+        try (ProductCsvParser parser = parser("", 64 * 1024)) {
+            assertThat(parser.readHeader()).isEmpty();
+            assertThat(parser.next()).isFalse();
+        }
+    }
+
+    private static List<ProductDTO> parseAll(String csv) throws IOException {
+        return parseAll(csv, 64 * 1024);
+    }
+
+    private static List<ProductDTO> parseAll(String csv, int bufferSize) throws IOException {
+        List<ProductDTO> products = new ArrayList<>();
+        try (ProductCsvParser parser = parser(csv, bufferSize)) {
+            parser.readHeader();
+            while (parser.next()) {
+                products.add(parser.product());
+            }
+        }
+        return products;
+    }
+
+    private static ProductCsvParser parser(String csv, int bufferSize) {
+        return new ProductCsvParser(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 0, bufferSize);
+    }
+}